@@ -21,6 +21,9 @@ import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.CAN;
+import frc.robot.util.InputShaper;
+import frc.robot.util.LedLayer.Segment;
+import frc.robot.util.Telemetry.Verbosity;
 import swervelib.math.Matter;
 import swervelib.parser.PIDFConfig;
 
@@ -60,6 +63,25 @@ public final class Constants {
   public static final class LED {
     public static final int PWMPORT = 0;
     public static final int BUFFERSIZE = 157;
+    // Shortest time between two pushes to the strip when rendering on the main loop (seconds)
+    public static final double kMinFramePeriod = 0.04;
+    // Render the LEDs on their own thread instead of in LEDSubsystem.periodic, until
+    // LEDSubsystem.setRenderThread changes it
+    public static final boolean kRenderThread = false;
+    // Frames per second the render thread runs at
+    public static final double kRenderFrameRate = 50;
+
+    // Strip segments the layers are drawn on, the strip runs up one side and down the other
+    public static final Segment kAll = new Segment("All", 0, BUFFERSIZE);
+    public static final Segment kLeftSide = new Segment("Left", 0, BUFFERSIZE / 2);
+    public static final Segment kRightSide = new Segment("Right", BUFFERSIZE / 2, BUFFERSIZE - BUFFERSIZE / 2);
+    public static final Segment kMiddle = new Segment("Middle", BUFFERSIZE / 2 - 8, 17);
+
+    // Layer priorities, higher draws on top
+    public static final int kBasePriority = 0;
+    public static final int kStatePriority = 10;
+    public static final int kIntakingPriority = 50;
+    public static final int kCommandPriority = 100;
 
   }
 
@@ -73,18 +95,46 @@ public final class Constants {
     public static final double MAX_ACCELERATION = 2;
   }
 
+  public static final class Profiler {
+
+    // Set to false to take the loop profiler out of the loop entirely
+    public static final boolean kEnabled = true;
+    // Loop period the budget is measured against
+    public static final double kLoopBudget = 0.02; // seconds
+    // Number of loops per statistics window, 50 loops is one second
+    public static final int kWindowLoops = 50;
+    // Share of the loop budget a single component may use (at p99) before it gets flagged
+    public static final double kBudgetShare = 0.25;
+  }
+
+  public static final class TelemetryConstants {
+
+    // How much dashboard telemetry gets published. Drop to LOW for matches.
+    public static final Verbosity kVerbosity = Verbosity.HIGH;
+  }
+
   public static final class Drivebase {
 
     // Hold time on motor brakes when disabled
     public static final double WHEEL_LOCK_TIME = 10; // seconds
+
+    // Drive setpoint limits, see SwerveSetpointGenerator
+    // Fastest a module's velocity may change (meters per second squared)
+    public static final double kMaxModuleAcceleration = 8;
+    // Wheel grip, same as wheelGripCoefficientOfFriction in swerve/neo/modules/physicalproperties.json
+    public static final double kWheelCoefficientOfFriction = 1.19;
+    // Fastest a moving module may steer (radians per second)
+    public static final double kMaxSteerVelocity = 4 * Math.PI;
+    // Time without a limited drive call after which the limits restart from the measured velocity
+    public static final double kSetpointResetTime = 0.1; // seconds
   }
 
   public static class OperatorConstants {
 
-    // Joystick Deadband
-    public static final double LEFT_X_DEADBAND = 0.01;
-    public static final double LEFT_Y_DEADBAND = 0.01;
-    public static final double RIGHT_X_DEADBAND = 0.01;
+    // Left stick driving: radial deadband, cubic expo, ramps from stop to full in 1/6 s, 35% in precision mode
+    public static final InputShaper.Config kTranslationShaping = new InputShaper.Config(0.05, 1, 6, 0.35);
+    // Right stick turning
+    public static final InputShaper.Config kRotationShaping = new InputShaper.Config(0.05, 1, 8, 0.5);
     public static final double TURN_CONSTANT = 0.75;
 
   }
@@ -131,8 +181,20 @@ public final class Constants {
 
     public static final double maxVoltage = 11.5;
 
+    // Run the arm position loop on the leader SPARK MAX instead of the roboRIO. The roboRIO still
+    // runs the motion profile and feedforward and streams them to the controller.
+    public static final boolean kOnboardControl = false;
+
     public static final TrapezoidProfile.Constraints kArmMotionConstraint = new TrapezoidProfile.Constraints(1.25, 1.25);
 
+    // When the arm counts as arrived at a setpoint
+    public static final double kPositionTolerance = 0.005; // rotations
+    public static final double kVelocityTolerance = 0.02; // rotations per second
+    // How long the arm has to stay within tolerance
+    public static final double kSettleTime = 0.06; // seconds
+    // Longest a setpoint command waits for the arm before giving up
+    public static final double kSetpointTimeout = 2.5; // seconds
+
     // Differnt arm position
     public static class SetPointPositions {
       // 0 is the home position and all the way down
@@ -200,6 +262,42 @@ public final class Constants {
       public static final double kBlueStageAngle = Units.degreesToRadians(-30);
     }
 
+    // Shooting while moving, see AimSolution
+    // Speed the note leaves the shooter at (meters per second)
+    public static final double kNoteExitVelocity = 16;
+    // Height of the note as it leaves the shooter (meters)
+    public static final double kShooterHeight = 0.55;
+    // Direction the shooter fires in relative to the robot's front (radians). It fires over the back,
+    // which is why the autos start at the speaker facing away from it
+    public static final double kShooterFacing = Math.PI;
+    // Time from the shot being commanded to the note leaving the shooter (seconds)
+    public static final double kShotFeedDelay = 0.08;
+    // Most passes of the virtual target solver per loop
+    public static final int kMovingShotIterations = 4;
+    // Virtual target movement (meters) below which the solver stops early
+    public static final double kMovingShotTolerance = 0.01;
+    // Longest the "Sniper" auto command may take to aim and shoot before giving up and handing back to the path
+    public static final double kSniperTimeout = 2.0; // seconds
+    // Heading error (radians) the chassis has to be within before a moving shot is fed
+    public static final double kAimHeadingTolerance = Units.degreesToRadians(2);
+    // Indexer voltage and time to feed a note into the flywheels
+    public static final double kFeedVoltage = 12;
+    public static final double kFeedTime = 0.5; // seconds
+
+    // Speaker shot table in the deploy directory, see ShotTable
+    public static final String kShotTableFile = "shooter/speakertable.json";
+
+    // Arm setpoints for aiming at the speaker, by distance from it. Only used by ShotTable when the
+    // deploy file cannot be loaded.
+    public static final class AimPresets {
+      // Distance to the speaker in meters: subwoofer, podium, wing line
+      public static final double[] kDistances = {1.35, 2.9, 5.8};
+      public static final double[] kArmPositions = {
+          Arm.SetPointPositions.kShootFlatPosition,
+          Arm.SetPointPositions.kPodiumLinePosition,
+          Arm.SetPointPositions.kShootWingLinePosition};
+    }
+
     // CAN ID's for the shooter motors
     public static final int leftLeaderFlywheelMotor = 14;
     public static final int rightLeaderFlywheelMotor = 15;
@@ -228,13 +326,30 @@ public final class Constants {
     public static final double kLeftShooterkD = 0;
 
     public static final double maxVoltage = 11.5;
+
+    // Run the flywheel velocity loops on the SPARK MAXes instead of the roboRIO
+    public static final boolean kOnboardVelocityControl = false;
+    // Encoder velocity filtering for the onboard loops, the defaults are 32 ms and 8
+    public static final int kVelocityMeasurementPeriod = 16; // ms
+    public static final int kVelocityAverageDepth = 2;
+    // How long both flywheels have to hold their setpoints before the shooter is at speed
+    public static final double kAtSpeedDebounceTime = 0.1; // seconds
+
+    // Spin the flywheels up ahead of a shot while nothing else is using the shooter
+    public static final boolean kPreSpinEnabled = true;
+    // Distance from the speaker (meters) inside which a held note spins up to shot speed
+    public static final double kPreSpinDistance = 4.5;
+    // Extra distance (meters) before dropping back to idle, so the zone edge doesn't chatter
+    public static final double kPreSpinHysteresis = 0.3;
+
     public static final double maxRPM = 7000;
     public static final double maxAcc = 1500;
 
     // BeamBreak sensor analog port for shooter
     public static final int kBeamBreakPort = 0;
 
-    // Even more goofy variables
+    // Flywheel rotations per motor rotation. Set as the SPARK MAX encoder conversion
+    // factor, so every flywheel speed and setpoint is in wheel RPM
     public static final double CONVERSION_FACTOR = 1;
     public static final double PID_TOLERANCE = 20;
 
@@ -247,6 +362,26 @@ public final class Constants {
     public static final boolean indexingMotorInverted = true;
     public static final int indexingSpeed = 4000;
     public static final int beamBreakIRThreashold = 100;
+    // Raw counts above the threshold the beam break has to read to count as clear again
+    public static final int kBeamBreakHysteresis = 20;
+    // The beam break is averaged over 2^bits samples in the FPGA before the trigger sees it
+    public static final int kBeamBreakAverageBits = 2;
+
+    // Note handoff, see NoteHandoffCommand
+    public static final double kHandoffIntakeVoltage = 12;
+    public static final double kHandoffIndexVoltage = 6;
+    public static final double kHandoffBackOffVoltage = -6;
+    // How long the indexer keeps backing off after the note clears the beam break (seconds)
+    public static final double kHandoffBackOffTime = 0.04;
+    // Longest the handoff keeps intaking, retries after a jam included, before giving up (seconds)
+    public static final double kHandoffIntakeTimeout = 5.0;
+    // Longest the note may sit in the beam break before it is treated as staged (seconds)
+    public static final double kHandoffDetectedTimeout = 1.0;
+    // How long a jammed note is run back out before intaking again (seconds)
+    public static final double kHandoffEjectTime = 0.5;
+    // Intake current (amps) that has to be held for the stall time to count as a jam
+    public static final double kHandoffStallCurrent = 35;
+    public static final double kHandoffStallTime = 0.3; // seconds
 
   }
 
@@ -265,6 +400,13 @@ public final class Constants {
   }
   
   public static class Vision {
+    // Run the PhotonVision cameras in Vision and fuse them into the swerve pose estimator
+    public static final boolean kPhotonVisionEnabled = false;
+    // How long a camera thread waits for a new frame before checking in again
+    public static final double kCameraThreadTimeout = 0.1; // seconds
+    // Longest Vision.close waits for each camera thread to finish its frame and exit
+    public static final double kCameraThreadJoinTimeout = 0.5; // seconds
+
     public static final String kRearCameraName = "rearCamera";
     // Cam mounted facing forward, half a meter forward of center, half a meter up from center. = new Translation3d(0.5, 0.0, 0.5), new Rotation3d(0, 0, 0)
     public static final Transform3d kRearRobotToCam =
@@ -278,6 +420,42 @@ public final class Constants {
     // (Fake values. Experiment and determine estimation noise on an actual robot.)
     public static final Matrix<N3, N1> kSingleTagStdDevs = VecBuilder.fill(4, 4, 8);
     public static final Matrix<N3, N1> kMultiTagStdDevs = VecBuilder.fill(0.5, 0.5, 1);
+
+    // Outlier gate for each camera's measurements, see MeasurementGate
+    // Odometry standard deviations the gate compares against (x, y meters, theta radians)
+    public static final Matrix<N3, N1> kOdometryStdDevs = VecBuilder.fill(0.1, 0.1, 0.1);
+    // Odometry standard deviation added per meter driven since the last accepted measurement (meters, radians)
+    public static final double kOdometryDriftPerMeter = 0.05;
+    public static final double kOdometryHeadingDriftPerMeter = 0.02;
+    // Squared Mahalanobis distance a measurement is accepted within, 99% for 3 degrees of freedom
+    public static final double kGateChiSquared = 11.34;
+    // Rejected measurements in a row that have to agree before they override odometry
+    public static final int kGateConsecutiveFrames = 3;
+    // How far apart (meters) those rejected measurements may be and still agree
+    public static final double kGateConsistencyDistance = 0.25;
+    // Longest gap (seconds) between rejected measurements that still counts as in a row
+    public static final double kGateWindowSeconds = 0.5;
+    // Fewest tags, and worst ambiguity, a rejected measurement may have and still count towards an override
+    public static final int kGateOverrideMinTags = 2;
+    public static final double kGateOverrideMaxAmbiguity = 0.1;
+    // Odometry poses kept for comparing late frames against, one per robot loop (2.5 s at 50 Hz)
+    public static final int kPoseHistorySize = 128;
+
+    // Camera health, see CameraHealth
+    // Frames the latency and frame interval are averaged over
+    public static final int kHealthWindowFrames = 30;
+    // Time between frames at the cameras' frame rate
+    public static final double kExpectedFramePeriod = 1.0 / 30; // seconds
+    // Average pipeline latency above which a camera is unhealthy
+    public static final double kMaxLatencyMs = 60;
+    // Dropped frames within the window above which a camera is unhealthy
+    public static final int kMaxDroppedFrames = 5;
+    // Age of the newest frame above which a camera is unhealthy
+    public static final double kMaxResultAge = 0.5; // seconds
+    // Std dev multiplier for measurements from an unhealthy camera
+    public static final double kUnhealthyStdDevScale = 3;
+    // Age of the last fused measurement below which vision counts as locked on, for the LEDs
+    public static final double kLockedMeasurementAge = 0.5; // seconds
   }
 
 }
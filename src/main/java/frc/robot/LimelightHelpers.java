@@ -3,9 +3,12 @@
 package frc.robot;
 
 import edu.wpi.first.networktables.DoubleArrayEntry;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoubleSubscriber;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
 import edu.wpi.first.networktables.TimestampedDoubleArray;
 import frc.robot.LimelightHelpers.LimelightResults;
 import frc.robot.LimelightHelpers.PoseEstimate;
@@ -21,16 +24,24 @@ import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonFormat.Shape;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 public class LimelightHelpers {
 
@@ -384,6 +395,126 @@ public class LimelightHelpers {
 
     }
 
+    /**
+     * Parts of the results dump that {@link #getLatestResults(String, LimelightResultsBuffer)} can fill in. Pipeline
+     * index and target validity are always read.
+     */
+    public enum ResultField {
+        /**
+         * Pipeline and capture latency and the publish/capture timestamps.
+         */
+        TIMING,
+        /**
+         * Robot pose arrays and the tag count, span, distance and area that go with them.
+         */
+        BOTPOSE,
+        /**
+         * Per-tag fiducial results.
+         */
+        FIDUCIALS
+    }
+
+    /**
+     * Reusable results object for the streaming parser. Only the {@link ResultField}s it was created with are read out
+     * of the dump, everything else is skipped without being bound. Fiducials are stored as parallel arrays up to a fixed
+     * capacity.
+     */
+    public static class LimelightResultsBuffer {
+        private final boolean timing;
+        private final boolean botpose;
+        private final boolean fiducials;
+
+        public String error;
+        public double latency_jsonParse;
+
+        public double pipelineID;
+        public boolean valid;
+
+        public double latency_pipeline;
+        public double latency_capture;
+        public double timestamp_LIMELIGHT_publish;
+        public double timestamp_RIOFPGA_capture;
+
+        public final double[] botpose = new double[6];
+        public final double[] botpose_wpired = new double[6];
+        public final double[] botpose_wpiblue = new double[6];
+        public double botpose_tagcount;
+        public double botpose_span;
+        public double botpose_avgdist;
+        public double botpose_avgarea;
+
+        public int fiducialCount;
+        public final int[] fiducialID;
+        public final double[] fiducialTx;
+        public final double[] fiducialTy;
+        public final double[] fiducialTa;
+        /**
+         * Robot pose in field space seen from each fiducial, 6 values per fiducial.
+         */
+        public final double[] fiducialRobotPose_FieldSpace;
+
+        /**
+         * @param fiducialCapacity Most fiducials to keep, any beyond this are skipped.
+         * @param fields           Parts of the dump to read.
+         */
+        public LimelightResultsBuffer(int fiducialCapacity, ResultField... fields) {
+            boolean timing = false;
+            boolean botpose = false;
+            boolean fiducials = false;
+            for (ResultField field : fields) {
+                timing |= field == ResultField.TIMING;
+                botpose |= field == ResultField.BOTPOSE;
+                fiducials |= field == ResultField.FIDUCIALS;
+            }
+            this.timing = timing;
+            this.botpose = botpose;
+            this.fiducials = fiducials;
+
+            fiducialID = new int[fiducialCapacity];
+            fiducialTx = new double[fiducialCapacity];
+            fiducialTy = new double[fiducialCapacity];
+            fiducialTa = new double[fiducialCapacity];
+            fiducialRobotPose_FieldSpace = new double[fiducialCapacity * 6];
+        }
+
+        public Pose2d getBotPose2d_wpiBlue() {
+            return toPose2D(botpose_wpiblue);
+        }
+
+        public Pose2d getBotPose2d_wpiRed() {
+            return toPose2D(botpose_wpired);
+        }
+
+        /**
+         * Clear everything a parse can write, so a key missing from the next dump reads as zero instead of the
+         * previous frame's value. Groups that were not requested are never written and stay zero.
+         */
+        private void reset() {
+            error = null;
+            valid = false;
+            pipelineID = 0;
+            if (timing) {
+                latency_pipeline = 0;
+                latency_capture = 0;
+                timestamp_LIMELIGHT_publish = 0;
+                timestamp_RIOFPGA_capture = 0;
+            }
+            if (botpose) {
+                Arrays.fill(botpose, 0);
+                Arrays.fill(botpose_wpired, 0);
+                Arrays.fill(botpose_wpiblue, 0);
+                botpose_tagcount = 0;
+                botpose_span = 0;
+                botpose_avgdist = 0;
+                botpose_avgarea = 0;
+            }
+            if (fiducials) {
+                Arrays.fill(fiducialRobotPose_FieldSpace, 0, fiducialCount * 6, 0);
+            }
+            fiducialCount = 0;
+        }
+    }
+
     public static class RawFiducial {
         public int id = 0;
         public double txnc = 0;
@@ -440,6 +571,362 @@ public class LimelightHelpers {
         }
     }
 
+    /**
+     * Number of values per tag in the rawfiducials array: id, txnc, tync, ta, distToCamera, distToRobot, ambiguity.
+     */
+    static final int kValsPerRawFiducial = 7;
+    /**
+     * Number of values per detection in the rawdetections array: classId, txnc, tync, ta and four x/y corners.
+     */
+    static final int kValsPerRawDetection = 12;
+
+    /**
+     * Reusable struct-of-arrays view of a Limelight's rawfiducials array. Create one per camera and call
+     * {@link #update()} every loop; the accessors then read the decoded values straight out of preallocated arrays.
+     * Nothing is allocated per tag, and the NetworkTables array is only fetched when the camera has published a new one.
+     */
+    public static class RawFiducials {
+        private final DoubleArraySubscriber subscriber;
+        private long lastChange = -1;
+        private int count = 0;
+        private final int[] id;
+        private final double[] txnc;
+        private final double[] tync;
+        private final double[] ta;
+        private final double[] distToCamera;
+        private final double[] distToRobot;
+        private final double[] ambiguity;
+
+        /**
+         * @param limelightName Name of the Limelight.
+         * @param capacity      Most tags to decode, any beyond this are ignored.
+         */
+        public RawFiducials(String limelightName, int capacity) {
+            this(getLimelightNTTable(limelightName).getDoubleArrayTopic("rawfiducials").subscribe(new double[0]),
+                    capacity);
+        }
+
+        /**
+         * A view that is only filled by {@link #decode(double[])}, for tests.
+         */
+        RawFiducials(int capacity) {
+            this(null, capacity);
+        }
+
+        private RawFiducials(DoubleArraySubscriber subscriber, int capacity) {
+            this.subscriber = subscriber;
+            id = new int[capacity];
+            txnc = new double[capacity];
+            tync = new double[capacity];
+            ta = new double[capacity];
+            distToCamera = new double[capacity];
+            distToRobot = new double[capacity];
+            ambiguity = new double[capacity];
+        }
+
+        /**
+         * Decode the latest rawfiducials array if it changed since the last call.
+         *
+         * @return true if new data was decoded.
+         */
+        public boolean update() {
+            if (subscriber == null) {
+                return false;
+            }
+            long change = subscriber.getLastChange();
+            if (change == lastChange) {
+                return false;
+            }
+            lastChange = change;
+            decode(subscriber.get());
+            return true;
+        }
+
+        /**
+         * Decode a rawfiducials array into this view. An array that is not a whole number of tags decodes to none.
+         *
+         * @param data rawfiducials array.
+         */
+        public void decode(double[] data) {
+            if (data.length % kValsPerRawFiducial != 0) {
+                count = 0;
+                return;
+            }
+            count = Math.min(data.length / kValsPerRawFiducial, id.length);
+            for (int i = 0; i < count; i++) {
+                int base = i * kValsPerRawFiducial;
+                id[i] = (int) data[base];
+                txnc[i] = data[base + 1];
+                tync[i] = data[base + 2];
+                ta[i] = data[base + 3];
+                distToCamera[i] = data[base + 4];
+                distToRobot[i] = data[base + 5];
+                ambiguity[i] = data[base + 6];
+            }
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public int id(int i) {
+            return id[i];
+        }
+
+        public double txnc(int i) {
+            return txnc[i];
+        }
+
+        public double tync(int i) {
+            return tync[i];
+        }
+
+        public double ta(int i) {
+            return ta[i];
+        }
+
+        public double distToCamera(int i) {
+            return distToCamera[i];
+        }
+
+        public double distToRobot(int i) {
+            return distToRobot[i];
+        }
+
+        public double ambiguity(int i) {
+            return ambiguity[i];
+        }
+    }
+
+    /**
+     * Reusable struct-of-arrays view of a Limelight's rawdetections array, see {@link RawFiducials}. Corners are
+     * indexed 0 to 3.
+     */
+    public static class RawDetections {
+        private final DoubleArraySubscriber subscriber;
+        private long lastChange = -1;
+        private int count = 0;
+        private final int[] classId;
+        private final double[] txnc;
+        private final double[] tync;
+        private final double[] ta;
+        private final double[] corners;
+
+        /**
+         * @param limelightName Name of the Limelight.
+         * @param capacity      Most detections to decode, any beyond this are ignored.
+         */
+        public RawDetections(String limelightName, int capacity) {
+            this(getLimelightNTTable(limelightName).getDoubleArrayTopic("rawdetections").subscribe(new double[0]),
+                    capacity);
+        }
+
+        /**
+         * A view that is only filled by {@link #decode(double[])}, for tests.
+         */
+        RawDetections(int capacity) {
+            this(null, capacity);
+        }
+
+        private RawDetections(DoubleArraySubscriber subscriber, int capacity) {
+            this.subscriber = subscriber;
+            classId = new int[capacity];
+            txnc = new double[capacity];
+            tync = new double[capacity];
+            ta = new double[capacity];
+            corners = new double[capacity * 8];
+        }
+
+        /**
+         * Decode the latest rawdetections array if it changed since the last call.
+         *
+         * @return true if new data was decoded.
+         */
+        public boolean update() {
+            if (subscriber == null) {
+                return false;
+            }
+            long change = subscriber.getLastChange();
+            if (change == lastChange) {
+                return false;
+            }
+            lastChange = change;
+            decode(subscriber.get());
+            return true;
+        }
+
+        /**
+         * Decode a rawdetections array into this view. An array that is not a whole number of detections decodes to
+         * none.
+         *
+         * @param data rawdetections array.
+         */
+        public void decode(double[] data) {
+            if (data.length % kValsPerRawDetection != 0) {
+                count = 0;
+                return;
+            }
+            count = Math.min(data.length / kValsPerRawDetection, classId.length);
+            for (int i = 0; i < count; i++) {
+                int base = i * kValsPerRawDetection;
+                classId[i] = (int) data[base];
+                txnc[i] = data[base + 1];
+                tync[i] = data[base + 2];
+                ta[i] = data[base + 3];
+                System.arraycopy(data, base + 4, corners, i * 8, 8);
+            }
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public int classId(int i) {
+            return classId[i];
+        }
+
+        public double txnc(int i) {
+            return txnc[i];
+        }
+
+        public double tync(int i) {
+            return tync[i];
+        }
+
+        public double ta(int i) {
+            return ta[i];
+        }
+
+        public double cornerX(int i, int corner) {
+            return corners[i * 8 + corner * 2];
+        }
+
+        public double cornerY(int i, int corner) {
+            return corners[i * 8 + corner * 2 + 1];
+        }
+    }
+
+    /**
+     * Per-camera handle that opens every NetworkTables subscriber it needs once, so reading a value is a field read
+     * and a JNI call instead of a table and entry lookup by name. Get one with {@link #getHandle(String)} and keep it.
+     *
+     * <p>
+     * The botpose subscribers also queue every value the camera publishes, so the read*Estimates methods can return
+     * every pose estimate since the last call, each with its own timestamp, instead of only the newest one.
+     */
+    public static class LimelightHandle {
+        /**
+         * Most botpose values queued between reads.
+         */
+        static final int kQueueDepth = 10;
+
+        private final DoubleSubscriber tx;
+        private final DoubleSubscriber ty;
+        private final DoubleSubscriber ta;
+        private final DoubleSubscriber tv;
+        private final DoubleSubscriber tl;
+        private final DoubleSubscriber cl;
+        private final DoubleArraySubscriber botpose_wpiblue;
+        private final DoubleArraySubscriber botpose_orb_wpiblue;
+        private final DoubleArraySubscriber botpose_wpired;
+        private final DoubleArraySubscriber botpose_orb_wpired;
+
+        private LimelightHandle(String limelightName) {
+            NetworkTable table = getLimelightNTTable(limelightName);
+            tx = table.getDoubleTopic("tx").subscribe(0.0);
+            ty = table.getDoubleTopic("ty").subscribe(0.0);
+            ta = table.getDoubleTopic("ta").subscribe(0.0);
+            tv = table.getDoubleTopic("tv").subscribe(0.0);
+            tl = table.getDoubleTopic("tl").subscribe(0.0);
+            cl = table.getDoubleTopic("cl").subscribe(0.0);
+            botpose_wpiblue = subscribeQueued(table, "botpose_wpiblue");
+            botpose_orb_wpiblue = subscribeQueued(table, "botpose_orb_wpiblue");
+            botpose_wpired = subscribeQueued(table, "botpose_wpired");
+            botpose_orb_wpired = subscribeQueued(table, "botpose_orb_wpired");
+        }
+
+        private static DoubleArraySubscriber subscribeQueued(NetworkTable table, String entryName) {
+            return table.getDoubleArrayTopic(entryName).subscribe(new double[0],
+                PubSubOption.pollStorage(kQueueDepth), PubSubOption.keepDuplicates(true));
+        }
+
+        public double getTX() {
+            return tx.get();
+        }
+
+        public double getTY() {
+            return ty.get();
+        }
+
+        public double getTA() {
+            return ta.get();
+        }
+
+        public boolean getTV() {
+            return 1.0 == tv.get();
+        }
+
+        public double getLatency_Pipeline() {
+            return tl.get();
+        }
+
+        public double getLatency_Capture() {
+            return cl.get();
+        }
+
+        public PoseEstimate getBotPoseEstimate_wpiBlue() {
+            return getBotPoseEstimate(botpose_wpiblue.getAtomic());
+        }
+
+        public PoseEstimate getBotPoseEstimate_wpiBlue_MegaTag2() {
+            return getBotPoseEstimate(botpose_orb_wpiblue.getAtomic());
+        }
+
+        public PoseEstimate getBotPoseEstimate_wpiRed() {
+            return getBotPoseEstimate(botpose_wpired.getAtomic());
+        }
+
+        public PoseEstimate getBotPoseEstimate_wpiRed_MegaTag2() {
+            return getBotPoseEstimate(botpose_orb_wpired.getAtomic());
+        }
+
+        /**
+         * Every BLUE alliance MegaTag2 pose estimate published since the last call, oldest first. Entries are null
+         * where the camera had no pose.
+         */
+        public PoseEstimate[] readBotPoseEstimates_wpiBlue_MegaTag2() {
+            return readBotPoseEstimates(botpose_orb_wpiblue);
+        }
+
+        /**
+         * Every RED alliance MegaTag2 pose estimate published since the last call, oldest first. Entries are null
+         * where the camera had no pose.
+         */
+        public PoseEstimate[] readBotPoseEstimates_wpiRed_MegaTag2() {
+            return readBotPoseEstimates(botpose_orb_wpired);
+        }
+
+        private static PoseEstimate[] readBotPoseEstimates(DoubleArraySubscriber subscriber) {
+            TimestampedDoubleArray[] queue = subscriber.readQueue();
+            PoseEstimate[] estimates = new PoseEstimate[queue.length];
+            for (int i = 0; i < queue.length; i++) {
+                estimates[i] = getBotPoseEstimate(queue[i]);
+            }
+            return estimates;
+        }
+    }
+
+    private static final Map<String, LimelightHandle> handles = new ConcurrentHashMap<>();
+
+    /**
+     * Get the cached {@link LimelightHandle} for a camera, opening it on first use.
+     *
+     * @param limelightName Name of the Limelight.
+     */
+    public static LimelightHandle getHandle(String limelightName) {
+        return handles.computeIfAbsent(sanitizeName(limelightName), LimelightHandle::new);
+    }
+
     public static class PoseEstimate {
         public Pose2d pose;
         public double timestampSeconds;
@@ -559,10 +1046,7 @@ public class LimelightHelpers {
         return inData[position];
     }
 
-    private static PoseEstimate getBotPoseEstimate(String limelightName, String entryName) {
-        DoubleArrayEntry poseEntry = LimelightHelpers.getLimelightDoubleArrayEntry(limelightName, entryName);
-        
-        TimestampedDoubleArray tsValue = poseEntry.getAtomic();
+    private static PoseEstimate getBotPoseEstimate(TimestampedDoubleArray tsValue) {
         double[] poseArray = tsValue.value;
         long timestamp = tsValue.timestamp;
         
@@ -607,16 +1091,15 @@ public class LimelightHelpers {
     private static RawFiducial[] getRawFiducials(String limelightName) {
         var entry = LimelightHelpers.getLimelightNTTableEntry(limelightName, "rawfiducials");
         var rawFiducialArray = entry.getDoubleArray(new double[0]);
-        int valsPerEntry = 7;
-        if (rawFiducialArray.length % valsPerEntry != 0) {
+        if (rawFiducialArray.length % kValsPerRawFiducial != 0) {
             return new RawFiducial[0];
         }
     
-        int numFiducials = rawFiducialArray.length / valsPerEntry;
+        int numFiducials = rawFiducialArray.length / kValsPerRawFiducial;
         RawFiducial[] rawFiducials = new RawFiducial[numFiducials];
     
         for (int i = 0; i < numFiducials; i++) {
-            int baseIndex = i * valsPerEntry;
+            int baseIndex = i * kValsPerRawFiducial;
             int id = (int) extractArrayEntry(rawFiducialArray, baseIndex);
             double txnc = extractArrayEntry(rawFiducialArray, baseIndex + 1);
             double tync = extractArrayEntry(rawFiducialArray, baseIndex + 2);
@@ -634,16 +1117,15 @@ public class LimelightHelpers {
     public static RawDetection[] getRawDetections(String limelightName) {
         var entry = LimelightHelpers.getLimelightNTTableEntry(limelightName, "rawdetections");
         var rawDetectionArray = entry.getDoubleArray(new double[0]);
-        int valsPerEntry = 11;
-        if (rawDetectionArray.length % valsPerEntry != 0) {
+        if (rawDetectionArray.length % kValsPerRawDetection != 0) {
             return new RawDetection[0];
         }
     
-        int numDetections = rawDetectionArray.length / valsPerEntry;
+        int numDetections = rawDetectionArray.length / kValsPerRawDetection;
         RawDetection[] rawDetections = new RawDetection[numDetections];
     
         for (int i = 0; i < numDetections; i++) {
-            int baseIndex = i * valsPerEntry; // Starting index for this detection's data
+            int baseIndex = i * kValsPerRawDetection; // Starting index for this detection's data
             int classId = (int) extractArrayEntry(rawDetectionArray, baseIndex);
             double txnc = extractArrayEntry(rawDetectionArray, baseIndex + 1);
             double tync = extractArrayEntry(rawDetectionArray, baseIndex + 2);
@@ -760,15 +1242,15 @@ public class LimelightHelpers {
     /////
 
     public static double getTX(String limelightName) {
-        return getLimelightNTDouble(limelightName, "tx");
+        return getHandle(limelightName).getTX();
     }
 
     public static double getTY(String limelightName) {
-        return getLimelightNTDouble(limelightName, "ty");
+        return getHandle(limelightName).getTY();
     }
 
     public static double getTA(String limelightName) {
-        return getLimelightNTDouble(limelightName, "ta");
+        return getHandle(limelightName).getTA();
     }
 
     public static double[] getT2DArray(String limelightName) {
@@ -811,11 +1293,11 @@ public class LimelightHelpers {
 
 
     public static double getLatency_Pipeline(String limelightName) {
-        return getLimelightNTDouble(limelightName, "tl");
+        return getHandle(limelightName).getLatency_Pipeline();
     }
 
     public static double getLatency_Capture(String limelightName) {
-        return getLimelightNTDouble(limelightName, "cl");
+        return getHandle(limelightName).getLatency_Capture();
     }
 
     public static double getCurrentPipelineIndex(String limelightName) {
@@ -971,7 +1453,7 @@ public class LimelightHelpers {
      * @return
      */
     public static PoseEstimate getBotPoseEstimate_wpiBlue(String limelightName) {
-        return getBotPoseEstimate(limelightName, "botpose_wpiblue");
+        return getHandle(limelightName).getBotPoseEstimate_wpiBlue();
     }
 
     /**
@@ -982,7 +1464,7 @@ public class LimelightHelpers {
      * @return
      */
     public static PoseEstimate getBotPoseEstimate_wpiBlue_MegaTag2(String limelightName) {
-        return getBotPoseEstimate(limelightName, "botpose_orb_wpiblue");
+        return getHandle(limelightName).getBotPoseEstimate_wpiBlue_MegaTag2();
     }
 
     /**
@@ -1006,7 +1488,7 @@ public class LimelightHelpers {
      * @return
      */
     public static PoseEstimate getBotPoseEstimate_wpiRed(String limelightName) {
-        return getBotPoseEstimate(limelightName, "botpose_wpired");
+        return getHandle(limelightName).getBotPoseEstimate_wpiRed();
     }
 
     /**
@@ -1016,7 +1498,7 @@ public class LimelightHelpers {
      * @return
      */
     public static PoseEstimate getBotPoseEstimate_wpiRed_MegaTag2(String limelightName) {
-        return getBotPoseEstimate(limelightName, "botpose_orb_wpired");
+        return getHandle(limelightName).getBotPoseEstimate_wpiRed_MegaTag2();
     }
 
     /**
@@ -1034,7 +1516,7 @@ public class LimelightHelpers {
     }
 
     public static boolean getTV(String limelightName) {
-        return 1.0 == getLimelightNTDouble(limelightName, "tv");
+        return getHandle(limelightName).getTV();
     }
 
     /////
@@ -1210,15 +1692,172 @@ public class LimelightHelpers {
      * Asynchronously take snapshot.
      */
     public static CompletableFuture<Boolean> takeSnapshot(String tableName, String snapshotName) {
-        return CompletableFuture.supplyAsync(() -> {
-            return SYNCH_TAKESNAPSHOT(tableName, snapshotName);
-        });
+        return getSnapshotClient().submit(tableName, snapshotName);
+    }
+
+    private static SnapshotClient snapshotClient;
+
+    /**
+     * The shared {@link SnapshotClient} used by {@link #takeSnapshot(String, String)}, started on first use.
+     */
+    public static synchronized SnapshotClient getSnapshotClient() {
+        if (snapshotClient == null) {
+            snapshotClient = new SnapshotClient(SnapshotClient.kDefaultCapacity,
+                SnapshotClient.kDefaultConnectTimeoutMs, SnapshotClient.kDefaultReadTimeoutMs);
+        }
+        return snapshotClient;
+    }
+
+    /**
+     * Sends snapshot requests to Limelights from one background thread, so a burst of snapshots can never tie up the
+     * common fork-join pool or the robot thread.
+     *
+     * <ul>
+     * <li>At most {@code capacity} requests wait in the queue. When it is full the oldest waiting request is dropped
+     * and its future completes with false.</li>
+     * <li>A request for the same camera and snapshot name as one still waiting is coalesced into it and gets the same
+     * future.</li>
+     * <li>Every request has connect and read timeouts.</li>
+     * </ul>
+     */
+    public static class SnapshotClient {
+        static final int kDefaultCapacity = 4;
+        static final int kDefaultConnectTimeoutMs = 250;
+        static final int kDefaultReadTimeoutMs = 1000;
+
+        private record Request(String key, String tableName, String snapshotName, CompletableFuture<Boolean> future) {
+        }
+
+        private final int capacity;
+        private final int connectTimeoutMs;
+        private final int readTimeoutMs;
+        private final Function<String, URL> snapshotUrl;
+        private final ArrayDeque<Request> queue = new ArrayDeque<>();
+        private final Map<String, Request> waiting = new HashMap<>();
+
+        private final AtomicLong queued = new AtomicLong();
+        private final AtomicLong coalesced = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+
+        /**
+         * @param capacity         Most requests waiting to be sent.
+         * @param connectTimeoutMs Connect timeout for each request.
+         * @param readTimeoutMs    Read timeout for each request.
+         */
+        public SnapshotClient(int capacity, int connectTimeoutMs, int readTimeoutMs) {
+            this(capacity, connectTimeoutMs, readTimeoutMs,
+                tableName -> getLimelightURLString(tableName, "capturesnapshot"));
+        }
+
+        /**
+         * A client that sends its requests to {@code snapshotUrl.apply(tableName)} instead of the Limelight, for tests.
+         */
+        SnapshotClient(int capacity, int connectTimeoutMs, int readTimeoutMs, Function<String, URL> snapshotUrl) {
+            this.capacity = capacity;
+            this.connectTimeoutMs = connectTimeoutMs;
+            this.readTimeoutMs = readTimeoutMs;
+            this.snapshotUrl = snapshotUrl;
+
+            Thread worker = new Thread(this::run, "Limelight snapshots");
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        /**
+         * Queue a snapshot request.
+         *
+         * @return Completes with true if the Limelight took the snapshot, false if it failed or was dropped.
+         */
+        public synchronized CompletableFuture<Boolean> submit(String tableName, String snapshotName) {
+            String key = sanitizeName(tableName) + "/" + snapshotName;
+            Request existing = waiting.get(key);
+            if (existing != null) {
+                coalesced.incrementAndGet();
+                return existing.future();
+            }
+            if (queue.size() >= capacity) {
+                Request oldest = queue.pollFirst();
+                waiting.remove(oldest.key());
+                oldest.future().complete(false);
+                dropped.incrementAndGet();
+            }
+            Request request = new Request(key, tableName, snapshotName, new CompletableFuture<>());
+            queue.addLast(request);
+            waiting.put(key, request);
+            queued.incrementAndGet();
+            notifyAll();
+            return request.future();
+        }
+
+        private void run() {
+            while (true) {
+                Request request;
+                synchronized (this) {
+                    while (queue.isEmpty()) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    request = queue.pollFirst();
+                    waiting.remove(request.key());
+                }
+                boolean ok = SYNCH_TAKESNAPSHOT(snapshotUrl.apply(request.tableName()), request.snapshotName(),
+                    connectTimeoutMs, readTimeoutMs);
+                (ok ? completed : failed).incrementAndGet();
+                request.future().complete(ok);
+            }
+        }
+
+        /**
+         * @return Requests accepted into the queue, not counting coalesced ones.
+         */
+        public long getQueued() {
+            return queued.get();
+        }
+
+        /**
+         * @return Requests merged into one that was already waiting.
+         */
+        public long getCoalesced() {
+            return coalesced.get();
+        }
+
+        /**
+         * @return Requests the Limelight answered with success.
+         */
+        public long getCompleted() {
+            return completed.get();
+        }
+
+        /**
+         * @return Requests that errored, timed out or got a bad response.
+         */
+        public long getFailed() {
+            return failed.get();
+        }
+
+        /**
+         * @return Requests dropped because the queue was full.
+         */
+        public long getDropped() {
+            return dropped.get();
+        }
     }
 
-    private static boolean SYNCH_TAKESNAPSHOT(String tableName, String snapshotName) {
-        URL url = getLimelightURLString(tableName, "capturesnapshot");
+    private static boolean SYNCH_TAKESNAPSHOT(URL url, String snapshotName, int connectTimeoutMs,
+            int readTimeoutMs) {
+        if (url == null) {
+            return false;
+        }
+        HttpURLConnection connection = null;
         try {
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(connectTimeoutMs);
+            connection.setReadTimeout(readTimeoutMs);
             connection.setRequestMethod("GET");
             if (snapshotName != null && snapshotName != "") {
                 connection.setRequestProperty("snapname", snapshotName);
@@ -1232,10 +1871,137 @@ public class LimelightHelpers {
             }
         } catch (IOException e) {
             System.err.println(e.getMessage());
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
         }
         return false;
     }
 
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * Parses Limelight's JSON results dump into a reusable {@link LimelightResultsBuffer}, reading only the fields
+     * the buffer was created with. This streams over the dump instead of binding every field of every target like
+     * {@link #getLatestResults(String)} does.
+     *
+     * @return false if the dump could not be parsed, the reason is in {@code results.error}.
+     */
+    public static boolean getLatestResults(String limelightName, LimelightResultsBuffer results) {
+        return parseResults(getJSONDump(limelightName), results);
+    }
+
+    /**
+     * Parse a results dump into {@code results}, see {@link #getLatestResults(String, LimelightResultsBuffer)}.
+     *
+     * @return false if the dump could not be parsed, the reason is in {@code results.error}.
+     */
+    static boolean parseResults(String json, LimelightResultsBuffer results) {
+        long start = System.nanoTime();
+        results.reset();
+
+        boolean parsed = true;
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                results.error = "lljson error: no results";
+                parsed = false;
+            } else {
+                parseResults(parser, results);
+            }
+        } catch (IOException e) {
+            results.error = "lljson error: " + e.getMessage();
+            parsed = false;
+        }
+
+        double millis = (System.nanoTime() - start) * .000001;
+        results.latency_jsonParse = millis;
+        if (profileJSON) {
+            System.out.printf("lljson stream: %.2f\r\n", millis);
+        }
+        return parsed;
+    }
+
+    private static void parseResults(JsonParser parser, LimelightResultsBuffer results) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "pID" -> results.pipelineID = parser.getValueAsDouble();
+                case "v" -> results.valid = parser.getValueAsDouble() != 0;
+                case "tl" -> results.latency_pipeline = results.timing ? parser.getValueAsDouble() : 0;
+                case "cl" -> results.latency_capture = results.timing ? parser.getValueAsDouble() : 0;
+                case "ts" -> results.timestamp_LIMELIGHT_publish = results.timing ? parser.getValueAsDouble() : 0;
+                case "ts_rio" -> results.timestamp_RIOFPGA_capture = results.timing ? parser.getValueAsDouble() : 0;
+                case "botpose" -> readArray(parser, results.botpose, 0, results.botpose);
+                case "botpose_wpired" -> readArray(parser, results.botpose_wpired, 0, results.botpose);
+                case "botpose_wpiblue" -> readArray(parser, results.botpose_wpiblue, 0, results.botpose);
+                case "botpose_tagcount" -> results.botpose_tagcount = results.botpose ? parser.getValueAsDouble() : 0;
+                case "botpose_span" -> results.botpose_span = results.botpose ? parser.getValueAsDouble() : 0;
+                case "botpose_avgdist" -> results.botpose_avgdist = results.botpose ? parser.getValueAsDouble() : 0;
+                case "botpose_avgarea" -> results.botpose_avgarea = results.botpose ? parser.getValueAsDouble() : 0;
+                case "Fiducial" -> {
+                    if (results.fiducials && parser.currentToken() == JsonToken.START_ARRAY) {
+                        readFiducials(parser, results);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readFiducials(JsonParser parser, LimelightResultsBuffer results) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            int i = results.fiducialCount;
+            if (i >= results.fiducialID.length) {
+                parser.skipChildren();
+                continue;
+            }
+            results.fiducialID[i] = 0;
+            results.fiducialTx[i] = 0;
+            results.fiducialTy[i] = 0;
+            results.fiducialTa[i] = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                switch (name) {
+                    case "fID" -> results.fiducialID[i] = parser.getValueAsInt();
+                    case "tx" -> results.fiducialTx[i] = parser.getValueAsDouble();
+                    case "ty" -> results.fiducialTy[i] = parser.getValueAsDouble();
+                    case "ta" -> results.fiducialTa[i] = parser.getValueAsDouble();
+                    case "t6r_fs" -> readArray(parser, results.fiducialRobotPose_FieldSpace, i * 6, true);
+                    default -> parser.skipChildren();
+                }
+            }
+            results.fiducialCount++;
+        }
+    }
+
+    /**
+     * Read a JSON number array into {@code out} starting at {@code offset}, 6 values at most. Skips the array when
+     * {@code wanted} is false.
+     */
+    private static void readArray(JsonParser parser, double[] out, int offset, boolean wanted) throws IOException {
+        if (!wanted || parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        int i = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (i < 6) {
+                out[offset + i] = parser.getValueAsDouble();
+            }
+            parser.skipChildren();
+            i++;
+        }
+        for (; i < 6; i++) {
+            out[offset + i] = 0;
+        }
+    }
+
     /**
      * Parses Limelight's JSON results dump into a LimelightResults Object
      */
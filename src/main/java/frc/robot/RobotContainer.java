@@ -4,7 +4,7 @@
 
 package frc.robot;
 
-import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.XboxController;
@@ -23,14 +23,13 @@ import edu.wpi.first.wpilibj2.command.WaitCommand;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 import frc.robot.Constants.OperatorConstants;
-import frc.robot.commands.HandoffCommand;
-import frc.robot.commands.HandoffCommandReverse;
+import frc.robot.commands.NoteHandoffCommand;
 import frc.robot.commands.arm.ManualArmControlCommand;
 import frc.robot.commands.arm.SetPointControlCommand;
 import frc.robot.commands.indexer.IndexingCommand;
 import frc.robot.commands.intake.NoAutomationIntakieCommand;
 import frc.robot.commands.leds.FlashOnceCommand;
-import frc.robot.commands.leds.LedDefaultCommand;
+import frc.robot.commands.shooter.ShootOnTheMoveCommand;
 import frc.robot.commands.shooter.ShooterCommand;
 import frc.robot.commands.swervedrive.auto.ShootInPlaceAuto;
 import frc.robot.commands.swervedrive.drivebase.AbsoluteDrive;
@@ -39,6 +38,11 @@ import frc.robot.commands.swervedrive.drivebase.AbsoluteDriveAdv;
 import frc.robot.commands.swervedrive.drivebase.TeleopDrive;
 import frc.robot.subsystems.LEDSubsystem;
 import frc.robot.subsystems.swervedrive.SwerveSubsystem;
+import frc.robot.util.AimSolution;
+import frc.robot.util.InputShaper;
+import frc.robot.util.LedAnimation;
+import frc.robot.util.LedLayer;
+import frc.robot.util.LedLayer.BlendMode;
 import java.io.File;
 import java.lang.invoke.ConstantCallSite;
 import java.util.function.DoubleSupplier;
@@ -80,17 +84,13 @@ public class RobotContainer {
         XboxController coPilotController = new XboxController(1);
         CommandXboxController coPilotCommandController = new CommandXboxController(1);
 
-        // Command aimCommand = new AbsoluteFieldDrive(drivebase,
-        // () -> MathUtil.applyDeadband(-pilotController.getLeftY(),
-        // OperatorConstants.LEFT_Y_DEADBAND),
-        // () -> MathUtil.applyDeadband(-pilotController.getLeftX(),
-        // OperatorConstants.LEFT_X_DEADBAND),
-        // () -> 2 * drivebase.angletoSpeaker().getRotations());
-        // new SetPointControlCommand(armSubsystem, armAimAngle));
-        // //new ShooterCommand(shooterSubsystem,
-        // Constants.Shooter.Presets.kLeftSpeaker,
-        // //Constants.Shooter.Presets.kRightSpeaker)); // TODO create aiming
-        // // equation
+        // Pilot sticks, shaped the same way for every drive mode. Inverted here and nowhere else because joysticks
+        // are back-right positive while robot controls are front-left positive. Left stick click is precision mode.
+        InputShaper pilotTranslation = new InputShaper(OperatorConstants.kTranslationShaping,
+                        () -> -pilotController.getLeftY(), () -> -pilotController.getLeftX(),
+                        pilotController::getLeftStickButton);
+        InputShaper pilotRotation = new InputShaper(OperatorConstants.kRotationShaping,
+                        () -> -pilotController.getRightX(), pilotController::getLeftStickButton);
 
         /**
          * The container for the robot. Contains subsystems, OI devices, and commands.
@@ -100,11 +100,15 @@ public class RobotContainer {
         public RobotContainer() {
                 SmartDashboard.putNumber("Arm Aim Angle", 0);
 
+                // Spin up ahead of the shot while holding a note near the speaker
+                shooterSubsystem.configurePreSpin(indexingSubsystem::isNoteAquired, drivebase::getAimSolution);
+
                 // Commands for Pathplanner
-                NamedCommands.registerCommand("Shoot", new ShooterCommand(shooterSubsystem,
-                                Constants.Shooter.Presets.kLeftSpeaker, Constants.Shooter.Presets.kRightSpeaker));
+                // ShooterCommand holds speed until it ends, so the named shot spins up, feeds and stops
+                NamedCommands.registerCommand("Shoot", new ShootInPlaceAuto(shooterSubsystem, indexingSubsystem));
                 NamedCommands.registerCommand("Intake",
-                                new ParallelCommandGroup(new HandoffCommand(indexingSubsystem, intakeSubsystem, led),
+                                new ParallelCommandGroup(
+                                                new NoteHandoffCommand(indexingSubsystem, intakeSubsystem, led),
                                                 new PrintCommand("HandOff Command running")));
                 NamedCommands.registerCommand("RunIndexer", new IndexingCommand(indexingSubsystem, 12));
                 NamedCommands.registerCommand("StopIndexer", new IndexingCommand(indexingSubsystem, 0));
@@ -115,7 +119,10 @@ public class RobotContainer {
                                 Constants.Arm.SetPointPositions.kStowPosition));
                 NamedCommands.registerCommand("amp",
                                 new SetPointControlCommand(armSubsystem, Constants.Arm.SetPointPositions.kAmpPosition));
-                // NamedCommands.registerCommand("Sniper", aimCommand);
+                NamedCommands.registerCommand("Sniper",
+                                new ShootOnTheMoveCommand(drivebase, armSubsystem, shooterSubsystem,
+                                                indexingSubsystem, () -> 0, () -> 0)
+                                                .withTimeout(Constants.Shooter.kSniperTimeout));
                 NamedCommands.registerCommand("eject",
                                 new SequentialCommandGroup(new IndexingCommand(indexingSubsystem, 12),
                                                 new WaitCommand(.5), new IndexingCommand(indexingSubsystem, 0)));
@@ -140,49 +147,31 @@ public class RobotContainer {
                 // SmartDashboard.putData("4 note(3 close) bottom auto", autoCommandChoice);
 
                 AbsoluteDrive closedAbsoluteDrive = new AbsoluteDrive(drivebase,
-                                // Applies deadbands and inverts controls because joysticks
-                                // are back-right positive while robot
-                                // controls are front-left positive
-                                () -> MathUtil.applyDeadband(-pilotController.getLeftY(),
-                                                OperatorConstants.LEFT_Y_DEADBAND),
-                                () -> MathUtil.applyDeadband(-pilotController.getLeftX(),
-                                                OperatorConstants.LEFT_X_DEADBAND),
+                                pilotTranslation::getX, pilotTranslation::getY,
                                 () -> -pilotController.getRightX(),
                                 () -> -pilotController.getRightY());
 
                 AbsoluteFieldDrive closedFieldAbsoluteDrive = new AbsoluteFieldDrive(drivebase,
-                                () -> MathUtil.applyDeadband(pilotController.getLeftY(),
-                                                OperatorConstants.LEFT_Y_DEADBAND),
-                                () -> MathUtil.applyDeadband(pilotController.getLeftX(),
-                                                OperatorConstants.LEFT_X_DEADBAND),
+                                pilotTranslation::getX, pilotTranslation::getY,
                                 () -> pilotController.getRawAxis(2));
 
                 AbsoluteDriveAdv closedAbsoluteDriveAdv = new AbsoluteDriveAdv(drivebase,
-                                () -> MathUtil.applyDeadband(pilotController.getLeftY(),
-                                                OperatorConstants.LEFT_Y_DEADBAND),
-                                () -> MathUtil.applyDeadband(pilotController.getLeftX(),
-                                                OperatorConstants.LEFT_X_DEADBAND),
-                                () -> MathUtil.applyDeadband(pilotController.getRightX(),
-                                                OperatorConstants.RIGHT_X_DEADBAND),
+                                pilotTranslation::getX, pilotTranslation::getY,
+                                // The command turns the opposite way to the stick itself
+                                () -> -pilotRotation.getX(),
                                 pilotController::getYButtonPressed,
                                 pilotController::getAButtonPressed,
                                 pilotController::getXButtonPressed,
                                 pilotController::getBButtonPressed);
 
                 TeleopDrive simClosedFieldRel = new TeleopDrive(drivebase,
-                                () -> MathUtil.applyDeadband(-pilotController.getLeftY(),
-                                                OperatorConstants.LEFT_Y_DEADBAND),
-                                () -> MathUtil.applyDeadband(-pilotController.getLeftX(),
-                                                OperatorConstants.LEFT_X_DEADBAND),
-                                () -> pilotController.getRawAxis(2), () -> true);
+                                pilotTranslation::getX, pilotTranslation::getY,
+                                pilotRotation::getX, () -> true);
 
                 TeleopDrive closedFieldRel = new TeleopDrive(
                                 drivebase,
-                                () -> MathUtil.applyDeadband(-pilotCommandController.getLeftY(),
-                                                OperatorConstants.LEFT_Y_DEADBAND),
-                                () -> MathUtil.applyDeadband(-pilotCommandController.getLeftX(),
-                                                OperatorConstants.LEFT_X_DEADBAND),
-                                () -> -pilotController.getRightX(), () -> true);
+                                pilotTranslation::getX, pilotTranslation::getY,
+                                pilotRotation::getX, () -> true);
 
                 // ManualArmControlCommand manualArm = new ManualArmControlCommand(armSubsystem,
                 // () -> MathUtil.applyDeadband(coPilotController.getRightY() * -12, 0.01));
@@ -199,13 +188,57 @@ public class RobotContainer {
                                 () -> (pilotController.getLeftTriggerAxis() + coPilotController.getLeftTriggerAxis())
                                                 * 12));
 
-                led.setDefaultCommand(new LedDefaultCommand(led).ignoringDisable(true));
+                configureLeds();
 
                 // armSubsystem.setDefaultCommand(new SetPointControlCommand(armSubsystem, () ->
                 // SmartDashboard.getNumber("Arm Setpoint", 0)));
 
         }
 
+        /**
+         * Stack the LED layers. The base layers show the robot mode and alliance, the
+         * state layers sit on their own segments above them so they can all show at
+         * once.
+         */
+        private void configureLeds() {
+                int length = Constants.LED.BUFFERSIZE;
+                AimSolution aim = drivebase.getAimSolution();
+
+                // Disabled, test or no alliance yet - Rainbow pattern
+                led.addLayer(new LedLayer("Rainbow", Constants.LED.kAll, Constants.LED.kBasePriority,
+                                BlendMode.OVERWRITE, LedAnimation.rainbow(length, 3, 0.02))
+                                .when(() -> !aim.isAllianceKnown() || !(DriverStation.isTeleopEnabled()
+                                                || DriverStation.isAutonomousEnabled())));
+                // Teleop - Solid alliance color
+                led.addLayer(new LedLayer("Teleop Red", Constants.LED.kAll, Constants.LED.kBasePriority,
+                                BlendMode.OVERWRITE, LedAnimation.solid(length, LedAnimation.rgb(16, 0, 0)))
+                                .when(() -> DriverStation.isTeleopEnabled() && aim.isAllianceKnown() && aim.isRed()));
+                led.addLayer(new LedLayer("Teleop Blue", Constants.LED.kAll, Constants.LED.kBasePriority,
+                                BlendMode.OVERWRITE, LedAnimation.solid(length, LedAnimation.rgb(0, 0, 16)))
+                                .when(() -> DriverStation.isTeleopEnabled() && aim.isAllianceKnown() && !aim.isRed()));
+                // Auto - Blink alliance color
+                led.addLayer(new LedLayer("Auto Red", Constants.LED.kAll, Constants.LED.kBasePriority,
+                                BlendMode.OVERWRITE, LedAnimation.blink(length, LedAnimation.rgb(16, 0, 0), 0.25, 0.25))
+                                .when(() -> DriverStation.isAutonomousEnabled() && aim.isAllianceKnown()
+                                                && aim.isRed()));
+                led.addLayer(new LedLayer("Auto Blue", Constants.LED.kAll, Constants.LED.kBasePriority,
+                                BlendMode.OVERWRITE, LedAnimation.blink(length, LedAnimation.rgb(0, 0, 16), 0.25, 0.25))
+                                .when(() -> DriverStation.isAutonomousEnabled() && aim.isAllianceKnown()
+                                                && !aim.isRed()));
+
+                led.addLayer(new LedLayer("Note", Constants.LED.kLeftSide, Constants.LED.kStatePriority,
+                                BlendMode.OVERWRITE, LedAnimation.solid(Constants.LED.kLeftSide.length(),
+                                                Color.kOrangeRed))
+                                .when(indexingSubsystem::isNoteAquired));
+                led.addLayer(new LedLayer("At Speed", Constants.LED.kRightSide, Constants.LED.kStatePriority,
+                                BlendMode.OVERWRITE, LedAnimation.solid(Constants.LED.kRightSide.length(),
+                                                Color.kGreen))
+                                .when(shooterSubsystem::isAtSpeed));
+                led.addLayer(new LedLayer("Vision Locked", Constants.LED.kMiddle, Constants.LED.kStatePriority + 1,
+                                BlendMode.MAX, LedAnimation.solid(Constants.LED.kMiddle.length(), Color.kWhite))
+                                .when(drivebase::isVisionLocked));
+        }
+
         /**
          * Use this method to define your trigger->command mappings. Triggers can be
          * created via the
@@ -238,11 +271,13 @@ public class RobotContainer {
                 // new FlashOnceCommand(led, Color.kGreen))
                 pilotCommandController.leftBumper()
                                 .whileTrue(new SequentialCommandGroup(
-                                                new HandoffCommandReverse(indexingSubsystem, intakeSubsystem, led,
+                                                new NoteHandoffCommand(indexingSubsystem, intakeSubsystem, led,
+                                                                -Constants.Indexing.kHandoffIntakeVoltage,
                                                                 pilotController, coPilotController),
                                                 new FlashOnceCommand(led, Color.kGreen)));
 
-                pilotCommandController.leftBumper().onTrue(new HandoffCommand(indexingSubsystem, intakeSubsystem, led));
+                pilotCommandController.leftBumper()
+                                .onTrue(new NoteHandoffCommand(indexingSubsystem, intakeSubsystem, led));
 
                 pilotCommandController.y().onTrue((new InstantCommand(drivebase::zeroGyro)));
 
@@ -268,7 +303,6 @@ public class RobotContainer {
                 pilotCommandController.x()
                                 .whileTrue(new ShooterCommand(shooterSubsystem, Constants.Shooter.Presets.kLeftSpeaker,
                                                 Constants.Shooter.Presets.kRightSpeaker));
-                // pilotCommandController.x().whileTrue(aimCommand);
 
                 // ----------------------------
                 // Co-Pilot Controls
@@ -0,0 +1,232 @@
+package frc.robot.commands;
+
+import edu.wpi.first.math.filter.Debouncer;
+import edu.wpi.first.math.filter.Debouncer.DebounceType;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.XboxController;
+import edu.wpi.first.wpilibj.GenericHID.RumbleType;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants;
+import frc.robot.subsystems.IndexingSubsystem;
+import frc.robot.subsystems.IntakeSubsystem;
+import frc.robot.subsystems.LEDSubsystem;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Verbosity;
+
+/**
+ * Moves a note from the intake into the indexer and stages it behind the beam
+ * break.
+ *
+ * <pre>
+ * INTAKING --beam broken--> DETECTED --beam clear--> BACKING_OFF --time--> STAGED
+ * INTAKING --stall--------> EJECTING --time-------> INTAKING, or finished for {@link #eject}
+ * INTAKING --timeout------> IDLE
+ * DETECTED --timeout------> STAGED
+ * </pre>
+ *
+ * Transitions are taken on beam break edges, including one that was broken and
+ * cleared again between two loops. The indexer's interrupt starts backing the
+ * note off the moment it is detected (see
+ * {@link IndexingSubsystem#armNoteStop(double)}). Each state has a timeout, and
+ * the intake motor current is watched for a jammed note while intaking. The
+ * command finishes once the note is staged, straight away if one already is,
+ * or idle with the motors stopped if no note arrives within
+ * {@link Constants.Indexing#kHandoffIntakeTimeout}.
+ */
+public class NoteHandoffCommand extends Command {
+
+    public enum State {
+        INTAKING, DETECTED, BACKING_OFF, STAGED, EJECTING, IDLE
+    }
+
+    private final IndexingSubsystem indexer;
+    private final IntakeSubsystem intake;
+    private final LEDSubsystem led;
+    private final XboxController pilot;
+    private final XboxController copilot;
+    private final double intakeVoltage;
+    private final boolean ejectOnly;
+
+    private State state = State.STAGED;
+    private final Timer stateTimer = new Timer();
+    private final Timer intakeTimer = new Timer();
+    private double intakingStartTimestamp = 0;
+    private final Debouncer stallDebouncer = new Debouncer(Constants.Indexing.kHandoffStallTime, DebounceType.kRising);
+    private boolean finished = false;
+
+    private static final Telemetry.DoubleEntry stateEntry = Telemetry.doubleEntry("Handoff State", Verbosity.HIGH)
+            .changesOnly();
+
+    /**
+     * @param intakeVoltage Intake voltage while intaking, negative runs the intake
+     *                      the other way.
+     * @param pilot         Rumbled while the command runs, may be null.
+     * @param copilot       Rumbled while the command runs, may be null.
+     */
+    public NoteHandoffCommand(IndexingSubsystem indexerPassedIn, IntakeSubsystem intakePassedIn,
+            LEDSubsystem ledPassedIn, double intakeVoltage, XboxController pilot, XboxController copilot) {
+        this(indexerPassedIn, intakePassedIn, ledPassedIn, intakeVoltage, pilot, copilot, false);
+    }
+
+    public NoteHandoffCommand(IndexingSubsystem indexerPassedIn, IntakeSubsystem intakePassedIn,
+            LEDSubsystem ledPassedIn) {
+        this(indexerPassedIn, intakePassedIn, ledPassedIn, Constants.Indexing.kHandoffIntakeVoltage, null, null,
+                false);
+    }
+
+    private NoteHandoffCommand(IndexingSubsystem indexerPassedIn, IntakeSubsystem intakePassedIn,
+            LEDSubsystem ledPassedIn, double intakeVoltage, XboxController pilot, XboxController copilot,
+            boolean ejectOnly) {
+        indexer = indexerPassedIn;
+        intake = intakePassedIn;
+        led = ledPassedIn;
+        this.intakeVoltage = intakeVoltage;
+        this.pilot = pilot;
+        this.copilot = copilot;
+        this.ejectOnly = ejectOnly;
+        // The LEDs are only a layer, taking them would cancel whatever else they show
+        addRequirements(indexer, intake);
+    }
+
+    /**
+     * @return A command that runs the note path backwards for
+     *         {@link Constants.Indexing#kHandoffEjectTime} and then finishes.
+     */
+    public static NoteHandoffCommand eject(IndexingSubsystem indexer, IntakeSubsystem intake, LEDSubsystem led) {
+        return new NoteHandoffCommand(indexer, intake, led, Constants.Indexing.kHandoffIntakeVoltage, null, null,
+                true);
+    }
+
+    public void initialize() {
+        finished = false;
+        state = State.STAGED;
+        setRumble(1);
+        intakeTimer.restart();
+
+        if (ejectOnly) {
+            enter(State.EJECTING);
+        } else if (indexer.isNoteAquired()) {
+            enter(State.STAGED);
+        } else {
+            enter(State.INTAKING);
+        }
+    }
+
+    public void execute() {
+        double time = stateTimer.get();
+        switch (state) {
+            case INTAKING:
+                if (indexer.isNoteAquired() || indexer.getNoteEdgeTimestamp() > intakingStartTimestamp) {
+                    enter(State.DETECTED);
+                } else if (stallDebouncer.calculate(
+                        intake.getOutputCurrent() > Constants.Indexing.kHandoffStallCurrent)) {
+                    DriverStation.reportWarning("Handoff: intake stalled, ejecting", false);
+                    enter(State.EJECTING);
+                } else if (intakeTimer.hasElapsed(Constants.Indexing.kHandoffIntakeTimeout)) {
+                    DriverStation.reportWarning("Handoff: no note, giving up", false);
+                    enter(State.IDLE);
+                }
+                break;
+            case DETECTED:
+                if (!indexer.isNoteAquired()) {
+                    enter(State.BACKING_OFF);
+                } else if (time > Constants.Indexing.kHandoffDetectedTimeout) {
+                    DriverStation.reportWarning("Handoff: note did not clear the beam break", false);
+                    enter(State.STAGED);
+                }
+                break;
+            case BACKING_OFF:
+                if (time > Constants.Indexing.kHandoffBackOffTime) {
+                    enter(State.STAGED);
+                }
+                break;
+            case EJECTING:
+                if (time > Constants.Indexing.kHandoffEjectTime) {
+                    if (ejectOnly) {
+                        stop();
+                        finished = true;
+                    } else {
+                        enter(State.INTAKING);
+                    }
+                }
+                break;
+            case STAGED:
+            case IDLE:
+                break;
+        }
+    }
+
+    /**
+     * Change state and set the motors for it, once, on the way in.
+     */
+    private void enter(State next) {
+        led.intaking.setEnabled(next == State.INTAKING);
+        state = next;
+        stateTimer.restart();
+        stateEntry.set(next.ordinal());
+
+        switch (next) {
+            case INTAKING:
+                // Back the note out from the moment it breaks the beam, not on the next loop
+                indexer.armNoteStop(Constants.Indexing.kHandoffBackOffVoltage);
+                intakingStartTimestamp = Timer.getFPGATimestamp();
+                stallDebouncer.calculate(false);
+                indexer.setIndexingVoltage(Constants.Indexing.kHandoffIndexVoltage);
+                intake.setIntakeVoltage(intakeVoltage);
+                break;
+            case DETECTED:
+                // The indexer is already backing off if the interrupt saw the note first
+                intake.setIntakeVoltage(0);
+                indexer.setIndexingVoltage(Constants.Indexing.kHandoffBackOffVoltage);
+                break;
+            case BACKING_OFF:
+                indexer.disarmNoteStop();
+                indexer.setIndexingVoltage(Constants.Indexing.kHandoffBackOffVoltage);
+                break;
+            case EJECTING:
+                indexer.disarmNoteStop();
+                indexer.setIndexingVoltage(Constants.Indexing.kHandoffBackOffVoltage);
+                intake.setIntakeVoltage(-intakeVoltage);
+                break;
+            case STAGED:
+            case IDLE:
+                stop();
+                finished = true;
+                break;
+        }
+    }
+
+    private void stop() {
+        indexer.disarmNoteStop();
+        indexer.setIndexingVoltage(0);
+        intake.setIntakeVoltage(0);
+    }
+
+    private void setRumble(double value) {
+        if (pilot != null) {
+            pilot.setRumble(RumbleType.kBothRumble, value);
+        }
+        if (copilot != null) {
+            copilot.setRumble(RumbleType.kBothRumble, value);
+        }
+    }
+
+    public void end(boolean isInterrupted) {
+        led.intaking.setEnabled(false);
+        stop();
+        setRumble(0);
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return Where the note is in the handoff.
+     */
+    public State getState() {
+        return state;
+    }
+
+}
@@ -3,15 +3,23 @@ package frc.robot.commands.arm;
 import java.util.function.DoubleSupplier;
 
 import edu.wpi.first.networktables.DoubleSubscriber;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants;
 import frc.robot.subsystems.ArmSubsystem;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Verbosity;
 
 public class SetPointControlCommand extends Command {
 
     private final ArmSubsystem arm;
     private final DoubleSupplier input;
     private final boolean auto;
+    private final Timer timer = new Timer();
+
+    private static final Telemetry.DoubleEntry setpointEntry = Telemetry.doubleEntry("Arm Setpoint", Verbosity.HIGH)
+            .changesOnly();
 
     public SetPointControlCommand(ArmSubsystem armSubsystem, double armPosition) {
         arm = armSubsystem;
@@ -27,12 +35,28 @@ public class SetPointControlCommand extends Command {
         addRequirements(armSubsystem);
     }
 
-    public void execute() {
-        SmartDashboard.putNumber("Arm Setpoint", input.getAsDouble());
+    public void initialize() {
+        timer.restart();
         arm.setPosition(input.getAsDouble());
         arm.enable();
     }
+
+    public void execute() {
+        double position = input.getAsDouble();
+        setpointEntry.set(position);
+        arm.setPosition(position);
+    }
+
+    // Fixed setpoints finish once the arm has settled at them, or give up after a timeout so an
+    // auto can't hang on an arm that never arrives
     public boolean isFinished() {
-        return auto && !arm.isBusy();
+        if (!auto) {
+            return false;
+        }
+        if (timer.hasElapsed(Constants.Arm.kSetpointTimeout)) {
+            DriverStation.reportWarning("Arm timed out before reaching its setpoint", false);
+            return true;
+        }
+        return arm.isAtGoal();
     }
 }
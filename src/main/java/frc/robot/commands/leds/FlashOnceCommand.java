@@ -1,25 +1,49 @@
 package frc.robot.commands.leds;
 
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.util.Color;
 import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
-import edu.wpi.first.wpilibj2.command.WaitCommand;
-import frc.robot.Constants.LED;
 import frc.robot.subsystems.LEDSubsystem;
+import frc.robot.util.LedAnimation;
 
-public class FlashOnceCommand extends SequentialCommandGroup {
+/**
+ * Blanks the strip for a moment and then flashes a color on it once, on the
+ * LED subsystem's flash layer, above any color a {@link SetColorCommand} left.
+ */
+public class FlashOnceCommand extends Command {
+
+    private static final double kOffTime = 0.1;
+    private static final double kOnTime = 0.5;
+
+    private final LEDSubsystem led;
+    private final LedAnimation animation;
+    private final Timer timer = new Timer();
 
     public FlashOnceCommand(LEDSubsystem led, Color color) {
-        addRequirements(led); // ensures that we don't run the default command while we're running the wait command.
+        this.led = led;
+        int length = led.flash.getSegment().length();
+        // Off for one frame, then on for the rest, and hold the last frame
+        int[] on = LedAnimation.solid(length, color).getFrame(0);
+        int[][] frames = new int[(int) Math.round((kOffTime + kOnTime) / kOffTime)][];
+        frames[0] = new int[length];
+        for (int i = 1; i < frames.length; i++) {
+            frames[i] = on;
+        }
+        animation = new LedAnimation(frames, kOffTime, false);
+    }
 
-        addCommands(
-            new SetColorCommand(led, Color.kBlack),
-            new WaitCommand(0.1),
-            new SetColorCommand(led, color),
-            new WaitCommand(0.5),
-            new SetColorCommand(led, Color.kBlack)
-        );
+    public void initialize() {
+        led.flash.setAnimation(animation);
+        led.flash.setEnabled(true);
+        timer.restart();
+    }
+
+    public void end(boolean interrupted) {
+        led.flash.setEnabled(false);
+    }
 
+    public boolean isFinished() {
+        return timer.hasElapsed(kOffTime + kOnTime);
     }
 
 }
@@ -3,24 +3,36 @@ package frc.robot.commands.leds;
 import edu.wpi.first.wpilibj.util.Color;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.subsystems.LEDSubsystem;
+import frc.robot.util.LedAnimation;
 
+/**
+ * Shows a color on the whole strip, above every other layer, and finishes
+ * straight away like it always has. The color stays up until the next
+ * SetColorCommand replaces it, and a {@link FlashOnceCommand} only covers it
+ * while it runs. Doesn't require the LED subsystem, so it doesn't interrupt
+ * anything.
+ */
 public class SetColorCommand extends Command {
 
     private final LEDSubsystem led;
-    private final Color color;
+    private final LedAnimation animation;
 
     public SetColorCommand(LEDSubsystem ledPassedIn, Color colorPassedIn) {
         led = ledPassedIn;
-        color = colorPassedIn;
-        addRequirements(led);
+        animation = LedAnimation.solid(led.command.getSegment().length(), colorPassedIn);
     }
 
     public void initialize() {
-        led.setAll(color);
+        led.command.setAnimation(animation);
+        led.command.setEnabled(true);
     }
 
     public boolean isFinished() {
         return true;
     }
+
+    public boolean runsWhenDisabled() {
+        return true;
+    }
     
 }
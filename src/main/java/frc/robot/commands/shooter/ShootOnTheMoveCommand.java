@@ -0,0 +1,89 @@
+package frc.robot.commands.shooter;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants;
+import frc.robot.subsystems.ArmSubsystem;
+import frc.robot.subsystems.IndexingSubsystem;
+import frc.robot.subsystems.ShooterSubsystem;
+import frc.robot.subsystems.swervedrive.SwerveSubsystem;
+import frc.robot.util.AimSolution;
+
+// Drives with the given translation while holding the chassis, arm and flywheels on the
+// moving-shot aim solution. Once the arm is settled, the flywheels are at speed and the chassis
+// is facing the target it feeds the note, and finishes after Constants.Shooter.kFeedTime.
+
+public class ShootOnTheMoveCommand extends Command {
+
+    private final SwerveSubsystem swerve;
+    private final ArmSubsystem arm;
+    private final ShooterSubsystem shooter;
+    private final IndexingSubsystem indexer;
+    private final DoubleSupplier vX, vY;
+    private final Timer feedTimer = new Timer();
+    private boolean feeding = false;
+
+    /**
+     * @param swerve  The swerve drivebase subsystem.
+     * @param arm     The arm subsystem.
+     * @param shooter The shooter subsystem.
+     * @param indexer The indexer, fed into the shooter once everything is ready.
+     * @param vX      Field relative x translation input, -1 to 1 with deadband applied.
+     * @param vY      Field relative y translation input, -1 to 1 with deadband applied.
+     */
+    public ShootOnTheMoveCommand(SwerveSubsystem swerve, ArmSubsystem arm, ShooterSubsystem shooter,
+            IndexingSubsystem indexer, DoubleSupplier vX, DoubleSupplier vY) {
+        this.swerve = swerve;
+        this.arm = arm;
+        this.shooter = shooter;
+        this.indexer = indexer;
+        this.vX = vX;
+        this.vY = vY;
+        addRequirements(swerve, arm, shooter, indexer);
+    }
+
+    public void initialize() {
+        feeding = false;
+        arm.enable();
+        shooter.enable();
+    }
+
+    public void execute() {
+        AimSolution aim = swerve.getAimSolution();
+
+        ChassisSpeeds desiredSpeeds = swerve.getTargetSpeeds(vX.getAsDouble(), vY.getAsDouble(),
+                Rotation2d.fromRadians(aim.getBearing()));
+        swerve.driveLimited(desiredSpeeds.vxMetersPerSecond, desiredSpeeds.vyMetersPerSecond,
+                desiredSpeeds.omegaRadiansPerSecond, true);
+
+        arm.setPosition(aim.getArmPosition());
+        shooter.setSpeed(aim.getLeftRpm(), aim.getRightRpm());
+
+        // Once the note is on its way keep feeding, even if the aim drifts
+        if (!feeding && isReady(aim)) {
+            feeding = true;
+            feedTimer.restart();
+            indexer.setIndexingVoltage(Constants.Shooter.kFeedVoltage);
+        }
+    }
+
+    private boolean isReady(AimSolution aim) {
+        double headingError = MathUtil.angleModulus(aim.getBearing() - swerve.getHeading().getRadians());
+        return arm.isAtGoal() && shooter.isAtSpeed()
+                && Math.abs(headingError) <= Constants.Shooter.kAimHeadingTolerance;
+    }
+
+    public boolean isFinished() {
+        return feeding && feedTimer.hasElapsed(Constants.Shooter.kFeedTime);
+    }
+
+    public void end(boolean interrupted) {
+        indexer.setIndexingVoltage(0);
+        shooter.disable();
+    }
+}
@@ -1,23 +1,21 @@
 package frc.robot.commands.shooter;
 
-import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.subsystems.ShooterSubsystem;
 
-//This command never finishees unless end if called
+// Holds the flywheels at the given speeds. This command never finishes on its own, and it
+// disables the shooter when it ends, so run it alongside whatever feeds the note.
 
 public class ShooterCommand extends Command {
 
     private final ShooterSubsystem shooter;
     private final double leftRPM, rightRPM;
-    private boolean isFinished = false; 
 
     public ShooterCommand(ShooterSubsystem shooterSubsystem, double leftRPM, double rightRPM) {
         shooter = shooterSubsystem;
         this.leftRPM = leftRPM;
         this.rightRPM = rightRPM;
-        
+        addRequirements(shooter);
     }
 
     public void initialize() {
@@ -25,14 +23,12 @@ public class ShooterCommand extends Command {
         shooter.setSpeed(leftRPM, rightRPM);
     }
 
-    public void execute() {
-        if (shooter.getEnabled() && !shooter.isBusy()) {
-            isFinished = true;
-        }
+    public boolean isFinished() {
+        return false;
     }
 
-    public boolean isFinished() {
-        return isFinished;
+    public void end(boolean interrupted) {
+        shooter.disable();
     }
 
 }
@@ -5,9 +5,10 @@ import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.InstantCommand;
+import edu.wpi.first.wpilibj2.command.ParallelDeadlineGroup;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import edu.wpi.first.wpilibj2.command.WaitCommand;
+import edu.wpi.first.wpilibj2.command.WaitUntilCommand;
 import frc.robot.Constants;
 import frc.robot.Constants.Indexing;
 import frc.robot.commands.indexer.IndexingCommand;
@@ -17,6 +18,8 @@ import frc.robot.subsystems.ShooterSubsystem;
 import frc.robot.subsystems.swervedrive.SwerveSubsystem;
 
 
+// Spins the flywheels up, feeds the note once they are at speed (or after 3 seconds), then
+// stops the indexer. The shooter is disabled when the feed is done.
 
 public class ShootInPlaceAuto extends SequentialCommandGroup {
 
@@ -24,11 +27,13 @@ public class ShootInPlaceAuto extends SequentialCommandGroup {
     addRequirements(shooter);
 
     addCommands(
-    new ShooterCommand(shooter, Constants.Shooter.Presets.kLeftSpeaker, Constants.Shooter.Presets.kRightSpeaker).withTimeout(3),
-    new IndexingCommand(indexer, Constants.Indexing.indexingSpeed),
-    new WaitCommand(.5),
-    new IndexingCommand(indexer, 0),
-    new InstantCommand(shooter::disable)
+    new ParallelDeadlineGroup(
+        new SequentialCommandGroup(
+            new WaitUntilCommand(shooter::isAtSpeed).withTimeout(3),
+            new IndexingCommand(indexer, Constants.Indexing.indexingSpeed),
+            new WaitCommand(.5),
+            new IndexingCommand(indexer, 0)),
+        new ShooterCommand(shooter, Constants.Shooter.Presets.kLeftSpeaker, Constants.Shooter.Presets.kRightSpeaker))
     );
     
   }                       
@@ -4,10 +4,10 @@
 
 package frc.robot.commands.swervedrive.drivebase;
 
-import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.subsystems.swervedrive.SwerveSubsystem;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Verbosity;
 import java.util.function.BooleanSupplier;
 import java.util.function.DoubleSupplier;
 import swervelib.SwerveController;
@@ -24,6 +24,9 @@ public class TeleopDrive extends Command
   private final DoubleSupplier   omega;
   private final BooleanSupplier  driveMode;
   private final SwerveController controller;
+  private final Telemetry.DoubleEntry vXEntry    = Telemetry.doubleEntry("vX", Verbosity.HIGH);
+  private final Telemetry.DoubleEntry vYEntry    = Telemetry.doubleEntry("vY", Verbosity.HIGH);
+  private final Telemetry.DoubleEntry omegaEntry = Telemetry.doubleEntry("omega", Verbosity.HIGH);
 
   /**
    * Creates a new ExampleCommand.
@@ -53,17 +56,18 @@ public class TeleopDrive extends Command
   @Override
   public void execute()
   {
-    double xVelocity   = Math.pow(vX.getAsDouble(), 3);
-    double yVelocity   = Math.pow(vY.getAsDouble(), 3);
-    double angVelocity = Math.pow(omega.getAsDouble(), 3);
-    SmartDashboard.putNumber("vX", xVelocity);
-    SmartDashboard.putNumber("vY", yVelocity);
-    SmartDashboard.putNumber("omega", angVelocity);
+    // Inputs arrive shaped, see InputShaper
+    double xVelocity   = vX.getAsDouble();
+    double yVelocity   = vY.getAsDouble();
+    double angVelocity = omega.getAsDouble();
+    vXEntry.set(xVelocity);
+    vYEntry.set(yVelocity);
+    omegaEntry.set(angVelocity);
 
-    // Drive using raw values.
-    swerve.drive(new Translation2d(xVelocity * swerve.maximumSpeed, yVelocity * swerve.maximumSpeed),
-                 angVelocity * controller.config.maxAngularVelocity,
-                 driveMode.getAsBoolean());
+    // Drive using raw values, limited so it doesn't skid or tip.
+    swerve.driveLimited(xVelocity * swerve.maximumSpeed, yVelocity * swerve.maximumSpeed,
+                        angVelocity * controller.config.maxAngularVelocity,
+                        driveMode.getAsBoolean());
   }
 
   // Called once the command ends or is interrupted.
@@ -5,18 +5,28 @@ import edu.wpi.first.units.Units;
 import edu.wpi.first.units.Voltage;
 import edu.wpi.first.wpilibj.DutyCycleEncoder;
 import edu.wpi.first.wpilibj.Encoder;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
 import edu.wpi.first.math.controller.ArmFeedforward;
+import edu.wpi.first.math.filter.Debouncer;
+import edu.wpi.first.math.filter.Debouncer.DebounceType;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 
+import com.revrobotics.CANSparkBase.ControlType;
 import com.revrobotics.CANSparkMax;
+import com.revrobotics.RelativeEncoder;
+import com.revrobotics.SparkPIDController;
+import com.revrobotics.SparkPIDController.ArbFFUnits;
 import com.revrobotics.CANSparkBase.IdleMode;
 import com.revrobotics.CANSparkLowLevel.MotorType;
 import frc.robot.Constants;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.SparkMaxGains;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Verbosity;
 
 // Controls the Arm and Shooter motors and sensors, and contains all Arm-, Shooter-, and Climber-related commands
 public class ArmSubsystem extends SubsystemBase {
@@ -26,6 +36,9 @@ public class ArmSubsystem extends SubsystemBase {
     private CANSparkMax leftArmMotorOne = new CANSparkMax(Constants.Arm.leftMotorOneID, MotorType.kBrushless);
     private CANSparkMax leftArmMotorTwo = new CANSparkMax(Constants.Arm.leftMotorTwoID, MotorType.kBrushless);
 
+    private SparkPIDController armController = leftArmMotorOne.getPIDController();
+    private RelativeEncoder armMotorEncoder = leftArmMotorOne.getEncoder();
+
     private DutyCycleEncoder armEncoder = new DutyCycleEncoder(Constants.Arm.armEncoderPortS);
     private Encoder armIncrementalEncoder = new Encoder(Constants.Arm.armEncoderPortA, Constants.Arm.armEncoderPortB);
 
@@ -35,11 +48,26 @@ public class ArmSubsystem extends SubsystemBase {
     private ArmFeedforward FF = new ArmFeedforward(Constants.Arm.armks, Constants.Arm.armkg, Constants.Arm.armkv);
 
     private boolean enabled = false;
+    private boolean motorEncoderSeeded = false;
 
     private TrapezoidProfile profile = new TrapezoidProfile(Constants.Arm.kArmMotionConstraint);
 
     private TrapezoidProfile.State goalState, setpointState;
 
+    private Debouncer settleDebouncer = new Debouncer(Constants.Arm.kSettleTime, DebounceType.kRising);
+    private boolean atGoal = false;
+    /**
+     * True once the arm has finished its profile and settled at the goal, see
+     * {@link #isAtGoal()}.
+     */
+    public final Trigger atGoalTrigger = new Trigger(this::isAtGoal);
+
+    private final int profilerSlot = LoopProfiler.register(getName() + ".periodic()");
+    private final Telemetry.DoubleEntry dutyCycleEncoderEntry = Telemetry.doubleEntry("Duty Cycle Encoder",
+            Verbosity.HIGH);
+    private final Telemetry.DoubleEntry voltageEntry = Telemetry.doubleEntry("voltage", Verbosity.HIGH);
+    private final Telemetry.DoubleEntry armAngleEntry = Telemetry.doubleEntry("Arm Angle", Verbosity.LOW);
+
     public SysIdRoutine routine = new SysIdRoutine(new SysIdRoutine.Config(),
             new SysIdRoutine.Mechanism((Measure<Voltage> voltage) -> setVoltage(voltage.in(Units.Volts)), log ->
             // Record a frame for the shooter motor.
@@ -77,6 +105,42 @@ public class ArmSubsystem extends SubsystemBase {
         // goalState = new TrapezoidProfile.State(getPosition(), getVelocity());
         setpointState = new TrapezoidProfile.State(getPosition(), getVelocity());
         setPosition(Constants.Arm.SetPointPositions.kStowPosition);
+
+        if (Constants.Arm.kOnboardControl) {
+            configureOnboardControl();
+        }
+    }
+
+    /**
+     * Set up the leader SPARK MAX to close the position loop itself, at 1 kHz on
+     * its own encoder, instead of the roboRIO sending a voltage every 20 ms. The
+     * motor encoder is converted to arm rotations and seeded from the absolute
+     * encoder, see {@link #syncMotorEncoder()}. The gains are converted by
+     * {@link SparkMaxGains}.
+     */
+    private void configureOnboardControl() {
+        leftArmMotorOne.enableVoltageCompensation(Constants.Arm.maxVoltage);
+        armMotorEncoder.setPositionConversionFactor(Constants.Arm.ajustedArmGearRatio);
+        armMotorEncoder.setVelocityConversionFactor(Constants.Arm.ajustedArmGearRatio / 60.0);
+        syncMotorEncoder();
+
+        armController.setFeedbackDevice(armMotorEncoder);
+        SparkMaxGains.apply(armController, Constants.Arm.armkP, Constants.Arm.armkI, Constants.Arm.armkD,
+                Constants.Arm.maxVoltage);
+        armController.setFF(0);
+        armController.setOutputRange(-1, 1);
+    }
+
+    /**
+     * Seed the motor encoder the SPARK MAX closes its loop on from the absolute
+     * encoder that {@link #isAtGoal()} judges arrival with, so the two agree on
+     * where the arm is. Does nothing until the absolute encoder is connected.
+     */
+    private void syncMotorEncoder() {
+        if (armEncoder.isConnected()) {
+            armMotorEncoder.setPosition(armEncoder.get());
+            motorEncoderSeeded = true;
+        }
     }
 
     public void setVoltage(double voltage) {
@@ -85,29 +149,53 @@ public class ArmSubsystem extends SubsystemBase {
 
     @Override
     public void periodic() {
+        LoopProfiler.start(profilerSlot);
         // SmartDashboard.putNumber("Arm Quadrature Encoder",
         // armIncrementalEncoder.getDistance());
-        SmartDashboard.putNumber("Duty Cycle Encoder", armEncoder.get());
+        double armPosition = armEncoder.get();
+        dutyCycleEncoderEntry.set(armPosition);
 
         // if (profile.isFinished(0.2)) {
         // setpointState = new TrapezoidProfile.State(getPosition(), 0);
         // }
         
         setpointState = profile.calculate(0.02, setpointState, goalState);
-        double voltage = PID.calculate(getPosition(), setpointState.position)
-                + FF.calculate(setpointState.position * 2 * Math.PI, setpointState.velocity);
-        SmartDashboard.putNumber("voltage", voltage);
-        SmartDashboard.putNumber("Arm Angle", armEncoder.get());
-        if (enabled) {
-            setVoltage(voltage);
+        double feedforward = FF.calculate(setpointState.position * 2 * Math.PI, setpointState.velocity);
+        armAngleEntry.set(armPosition);
+        boolean profileDone = Math.abs(setpointState.position - goalState.position) < 1e-6
+                && Math.abs(setpointState.velocity) < 1e-6;
+        atGoal = settleDebouncer.calculate(profileDone
+                && Math.abs(armPosition - goalState.position) <= Constants.Arm.kPositionTolerance
+                && Math.abs(getVelocity()) <= Constants.Arm.kVelocityTolerance);
+        if (Constants.Arm.kOnboardControl) {
+            // Re-seed once the absolute encoder connects, and whenever the arm is at rest
+            // and the motor encoder has drifted from it
+            if (!motorEncoderSeeded || (Math.abs(getVelocity()) <= Constants.Arm.kVelocityTolerance
+                    && Math.abs(armMotorEncoder.getPosition() - armPosition) > Constants.Arm.kPositionTolerance / 2)) {
+                syncMotorEncoder();
+            }
+            // The SPARK MAX tracks the profile setpoint itself, only the feedforward comes from here
+            voltageEntry.set(feedforward);
+            if (enabled && motorEncoderSeeded) {
+                armController.setReference(setpointState.position, ControlType.kPosition, 0, feedforward,
+                        ArbFFUnits.kVoltage);
+            }
+        } else {
+            double voltage = PID.calculate(armPosition, setpointState.position) + feedforward;
+            voltageEntry.set(voltage);
+            if (enabled) {
+                setVoltage(voltage);
+            }
         }
 
-        
-
+        LoopProfiler.stop(profilerSlot);
     }
 
     public void enable() {
         enabled = true;
+        if (Constants.Arm.kOnboardControl) {
+            syncMotorEncoder();
+        }
     }
 
     public void disable() {
@@ -123,11 +211,29 @@ public class ArmSubsystem extends SubsystemBase {
     }
 
     public void setPosition(double position) {
+        if (goalState != null && goalState.position == position) {
+            return;
+        }
         goalState = new TrapezoidProfile.State(position, 0);
+        // A new goal has to settle from scratch
+        atGoal = false;
+        settleDebouncer.calculate(false);
+    }
+
+    /**
+     * The arm is at its goal once the motion profile has finished, the measured
+     * position and velocity are within {@link Constants.Arm#kPositionTolerance} and
+     * {@link Constants.Arm#kVelocityTolerance}, and both have held for
+     * {@link Constants.Arm#kSettleTime}.
+     *
+     * @return true if the arm has arrived at its goal.
+     */
+    public boolean isAtGoal() {
+        return atGoal;
     }
 
     public boolean isBusy() {
-        return !PID.atSetpoint();
+        return !atGoal;
     }
 
     public Command sysIdQuasistaticc(SysIdRoutine.Direction direction) {
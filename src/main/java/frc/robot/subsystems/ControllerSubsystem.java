@@ -8,6 +8,7 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj.Joystick;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.util.sendable.SendableBuilder;
+import frc.robot.util.LoopProfiler;
 
 public class ControllerSubsystem extends SubsystemBase {
 
@@ -17,6 +18,8 @@ public class ControllerSubsystem extends SubsystemBase {
     // Only use if joystick control is going to be used.
     private final Joystick joystick = null; // new Joystick(0);
 
+    private final int profilerSlot = LoopProfiler.register(getName() + ".periodic()");
+
     public ControllerSubsystem() {
     }
 
@@ -34,6 +37,8 @@ public class ControllerSubsystem extends SubsystemBase {
 
     @Override
     public void periodic() {
+        LoopProfiler.start(profilerSlot);
+        LoopProfiler.stop(profilerSlot);
     }
 
     /**
@@ -3,38 +3,139 @@ package frc.robot.subsystems;
 import com.revrobotics.CANSparkLowLevel.MotorType;
 import com.revrobotics.CANSparkMax;
 
+import edu.wpi.first.hal.AccumulatorResult;
 import edu.wpi.first.wpilibj.AnalogInput;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.AnalogTrigger;
+import edu.wpi.first.wpilibj.AnalogTriggerOutput.AnalogTriggerType;
+import edu.wpi.first.wpilibj.AsynchronousInterrupt;
 import frc.robot.Constants;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Verbosity;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
+/**
+ * The beam break is read by an analog trigger instead of once a loop. The
+ * trigger compares the averaged samples in the FPGA, with hysteresis, and its
+ * edges wake an interrupt thread that timestamps them with the FPGA clock. When
+ * a note stop has been armed with {@link #armNoteStop(double)} that thread also
+ * drives the indexer as soon as the beam is broken, instead of waiting up to a
+ * loop for a command to see it.
+ */
 public class IndexingSubsystem extends SubsystemBase {
 
     AnalogInput indexerBeambreak = new AnalogInput(Constants.Shooter.kBeamBreakPort);
+    private final AnalogTrigger beamBreakTrigger = new AnalogTrigger(indexerBeambreak);
+    private final AsynchronousInterrupt beamBreakInterrupt;
 
     private CANSparkMax indexingMotor = new CANSparkMax(Constants.Indexing.indexingMotor, MotorType.kBrushless);
 
+    private final AccumulatorResult accumulatorResult = new AccumulatorResult();
+    private long lastAccumulatorValue = 0;
+    private long lastAccumulatorCount = 0;
     private double sensorValue = 0;
 
+    private boolean noteStopArmed = false;
+    private boolean noteStopped = false;
+    private double noteStopVoltage = 0;
+    private volatile double noteEdgeTimestamp = Double.NaN;
+
+    private final int profilerSlot = LoopProfiler.register(getName() + ".periodic()");
+    private final Telemetry.DoubleEntry beamBreakEntry = Telemetry.doubleEntry("BeamBreak IR value", Verbosity.HIGH)
+            .withPeriod(0.1);
+    private final Telemetry.DoubleEntry noteEdgeEntry = Telemetry.doubleEntry("BeamBreak Edge Timestamp",
+            Verbosity.HIGH).changesOnly();
+
 
     public IndexingSubsystem() {
         indexingMotor.setInverted(Constants.Indexing.indexingMotorInverted);
+        // The averaging feeds the analog trigger. The accumulator, which only exists on
+        // analog inputs 0 and 1, sums the raw samples for the dashboard reading
+        indexerBeambreak.setAverageBits(Constants.Indexing.kBeamBreakAverageBits);
+        indexerBeambreak.setOversampleBits(0);
+        indexerBeambreak.initAccumulator();
         indexerBeambreak.setAccumulatorInitialValue(0);
         indexerBeambreak.setAccumulatorCenter(0);
+        indexerBeambreak.setAccumulatorDeadband(0);
         indexerBeambreak.resetAccumulator();
+
+        // The trigger goes low below the threshold, when a note is blocking the beam
+        beamBreakTrigger.setAveraged(true);
+        beamBreakTrigger.setLimitsRaw(Constants.Indexing.beamBreakIRThreashold,
+                Constants.Indexing.beamBreakIRThreashold + Constants.Indexing.kBeamBreakHysteresis);
+
+        beamBreakInterrupt = new AsynchronousInterrupt(beamBreakTrigger.createOutput(AnalogTriggerType.kState),
+                this::onBeamBreakEdge);
+        beamBreakInterrupt.setInterruptEdges(true, true);
+        beamBreakInterrupt.enable();
     }
 
-    public void setIndexingVoltage(double indexingVoltage) {
+    /**
+     * Runs on the interrupt thread.
+     */
+    private synchronized void onBeamBreakEdge(boolean rising, boolean falling) {
+        if (falling) {
+            noteEdgeTimestamp = beamBreakInterrupt.getFallingTimestamp();
+            if (noteStopArmed && !noteStopped) {
+                noteStopped = true;
+                indexingMotor.setVoltage(noteStopVoltage);
+            }
+        }
+    }
+
+    /**
+     * Drive the indexer at a voltage from the instant the beam is broken, until
+     * {@link #disarmNoteStop()}. Once it has happened, voltages from
+     * {@link #setIndexingVoltage(double)} are ignored so a command that has not
+     * seen the note yet cannot push it further in.
+     *
+     * @param voltage Indexer voltage to apply when a note breaks the beam.
+     */
+    public synchronized void armNoteStop(double voltage) {
+        noteStopArmed = true;
+        noteStopped = false;
+        noteStopVoltage = voltage;
+    }
+
+    public synchronized void disarmNoteStop() {
+        noteStopArmed = false;
+        noteStopped = false;
+    }
+
+    public synchronized void setIndexingVoltage(double indexingVoltage) {
+        if (noteStopped) {
+            return;
+        }
         indexingMotor.setVoltage(indexingVoltage);
     }
 
     public void periodic() {
-        SmartDashboard.putNumber("BeamBreak IR value", indexerBeambreak.getValue());
+        LoopProfiler.start(profilerSlot);
+        // Average of every sample the accumulator has summed since the last loop
+        indexerBeambreak.getAccumulatorOutput(accumulatorResult);
+        long count = accumulatorResult.count - lastAccumulatorCount;
+        if (count > 0) {
+            sensorValue = (double) (accumulatorResult.value - lastAccumulatorValue) / count;
+        }
+        lastAccumulatorValue = accumulatorResult.value;
+        lastAccumulatorCount = accumulatorResult.count;
+
+        beamBreakEntry.set(sensorValue);
+        noteEdgeEntry.set(noteEdgeTimestamp);
+        LoopProfiler.stop(profilerSlot);
     }   
 
     public boolean isNoteAquired() {
-        return indexerBeambreak.getValue() < Constants.Indexing.beamBreakIRThreashold;
+        return !beamBreakTrigger.getTriggerState();
+    }
+
+    /**
+     * @return FPGA timestamp in seconds of the last time a note broke the beam, or
+     *         NaN if one hasn't yet.
+     */
+    public double getNoteEdgeTimestamp() {
+        return noteEdgeTimestamp;
     }
 
 }
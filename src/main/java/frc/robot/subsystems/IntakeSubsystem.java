@@ -7,6 +7,7 @@ import java.util.function.DoubleSupplier;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkLowLevel.MotorType;
 import frc.robot.Constants;
+import frc.robot.util.LoopProfiler;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
@@ -17,6 +18,8 @@ public class IntakeSubsystem extends SubsystemBase {
 
     //DigitalInput intakeBeambreak = new DigitalInput(Constants.Intake.kBeamBreakSensorPort);
 
+    private final int profilerSlot = LoopProfiler.register(getName() + ".periodic()");
+
     public IntakeSubsystem() {
         intakeMotor.setInverted(Constants.Intake.intakeMotorCANIDInverted);
         // DigitalInput intakeBeamBreak = new
@@ -39,6 +42,16 @@ public class IntakeSubsystem extends SubsystemBase {
         intakeMotor.setVoltage(voltage);
     }
 
+    public double getOutputCurrent() {
+        return intakeMotor.getOutputCurrent();
+    }
+
+    @Override
+    public void periodic() {
+        LoopProfiler.start(profilerSlot);
+        LoopProfiler.stop(profilerSlot);
+    }
+
     public void stopIntaking(boolean shooterEmpty) {
         intakeMotor.setVoltage(0);
     }
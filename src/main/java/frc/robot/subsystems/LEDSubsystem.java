@@ -1,145 +1,148 @@
 package frc.robot.subsystems;
 
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 import edu.wpi.first.wpilibj.AddressableLED;
 import edu.wpi.first.wpilibj.AddressableLEDBuffer;
-import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import edu.wpi.first.wpilibj.util.Color;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import edu.wpi.first.wpilibj2.command.WaitCommand;
 import frc.robot.Constants.LED;
-
-public class LEDSubsystem extends SubsystemBase {
+import frc.robot.util.LedAnimation;
+import frc.robot.util.LedCompositor;
+import frc.robot.util.LedLayer;
+import frc.robot.util.LedLayer.BlendMode;
+import frc.robot.util.LoopProfiler;
+
+/**
+ * Drives the LED strip from a stack of {@link LedLayer}s.
+ *
+ * <p>
+ * Nothing requires this subsystem. Robot state shows up on the strip through layers whose conditions read it, added
+ * with {@link #addLayer(LedLayer)}, and commands turn the layers they own on and off. The {@link LedCompositor} only
+ * redraws when a layer changes, and a frame is only pushed to the strip when it differs from what was last pushed.
+ *
+ * <p>
+ * With the render thread off, {@link #periodic()} renders and pushes frames itself, no more often than
+ * {@link LED#kMinFramePeriod}. With it on, {@link #periodic()} only reads the layer conditions and posts them to a
+ * mailbox, and a {@link Notifier} renders from the mailbox at {@link LED#kRenderFrameRate}. The animations are timed
+ * from the clock rather than by counting frames, so they run at the same speed either way and don't stutter when the
+ * main loop overruns. {@link LED#kRenderThread} picks which one to start with, and
+ * {@link #setRenderThread(boolean)} switches between them.
+ */
+public class LEDSubsystem extends SubsystemBase implements AutoCloseable {
   private final AddressableLED m_led = new AddressableLED(LED.PWMPORT);
   private final AddressableLEDBuffer m_ledBuffer = new AddressableLEDBuffer(LED.BUFFERSIZE);
-  private int m_rainbowFirstPixelHue;
-  private int chaserLocation = 0;
-  private int increment = 0;
+  private final LedCompositor compositor = new LedCompositor(LED.BUFFERSIZE);
+  private final int[] front = new int[LED.BUFFERSIZE];
+  private boolean touched = false;
+  private double lastPushTimestamp = Double.NEGATIVE_INFINITY;
+
+  // Active layers, posted by the main loop and read by the render thread
+  private final AtomicLong activeLayers = new AtomicLong();
+  private volatile boolean useRenderThread = LED.kRenderThread;
+  private Notifier renderThread = null;
+
+  private final int profilerSlot = LoopProfiler.register(getName() + ".periodic()");
+
+  /** Chaser shown while a note is being handed off, see {@link frc.robot.commands.NoteHandoffCommand}. */
+  public final LedLayer intaking = compositor.add(new LedLayer("Intaking", LED.kAll, LED.kIntakingPriority,
+      BlendMode.OVER, LedAnimation.chaseFromMiddle(LED.BUFFERSIZE, LedAnimation.WHITE, 5, 3, 0.02)));
+  /** Whole strip layer above the robot state, see {@link frc.robot.commands.leds.SetColorCommand}. */
+  public final LedLayer command = compositor.add(new LedLayer("Command", LED.kAll, LED.kCommandPriority,
+      BlendMode.OVERWRITE, LedAnimation.solid(LED.BUFFERSIZE, LedAnimation.BLACK)));
+  /**
+   * Whole strip layer above {@link #command}, see {@link frc.robot.commands.leds.FlashOnceCommand}. A flash has its own
+   * layer so that ending it uncovers the color a SetColorCommand left instead of turning it off.
+   */
+  public final LedLayer flash = compositor.add(new LedLayer("Flash", LED.kAll, LED.kCommandPriority,
+      BlendMode.OVERWRITE, LedAnimation.solid(LED.BUFFERSIZE, LedAnimation.BLACK)));
 
   public LEDSubsystem() {
     m_led.setLength(m_ledBuffer.getLength());
     m_led.setData(m_ledBuffer);
     m_led.start();
 
-    setAll(Color.kBlack);
+    intaking.setEnabled(false);
+    command.setEnabled(false);
+    flash.setEnabled(false);
   }
 
-  // --------------------------------------- Public functions?
-  // I think these need to be able to override/interrupt the periodic
-
-  public void rainbow() {
-    // For every pixel
-    for (var i = 0; i < m_ledBuffer.getLength(); i++) {
-      // Calculate the hue - hue is easier for rainbows because the color
-      // shape is a circle so only one value needs to precess
-      final var hue = (m_rainbowFirstPixelHue + (i * 180 / m_ledBuffer.getLength())) % 180;
-      // Set the value
-      m_ledBuffer.setHSV(i, hue, 255, 128);
-    }
-    // Increase by to make the rainbow "move"
-    m_rainbowFirstPixelHue += 3;
-    // Check bounds
-    m_rainbowFirstPixelHue %= 180;
-    setLEDs();
+  /**
+   * Add a layer to the strip. Has to be done while the robot code starts, before the first {@link #periodic()}.
+   *
+   * @return the layer.
+   */
+  public LedLayer addLayer(LedLayer layer) {
+    return compositor.add(layer);
   }
 
   /**
-   * Moves (alliance colored?) chaser up from bottom on both sides
+   * Render on the render thread or in {@link #periodic()}. Takes effect on the next {@link #periodic()}.
    */
-  public void chaserIndex(boolean status) {
-    int numLights = (m_ledBuffer.getLength() / 2);
-    int numChaseOffOnPerPeriod = 3;
-    int chaseLength = 5;
-    int numIterations = numLights / numChaseOffOnPerPeriod - 1;
-
-    // Debug
-    int ledLength = m_ledBuffer.getLength();
-    SmartDashboard.putNumber(getName(), ledLength);
-    //SmartDashboard.putNumber(getName(), ledLength);
-
-    if (status) {
-
-      setAll(Color.kBlack);
+  public void setRenderThread(boolean enabled) {
+    useRenderThread = enabled;
+  }
 
-      for (int i = 0; i < chaseLength; i++) {
-        int position1 = (m_ledBuffer.getLength() / 2) + (-chaserLocation) * numChaseOffOnPerPeriod - i;
-        m_ledBuffer.setLED(position1, Color.kWhite);
-        int position2 = (m_ledBuffer.getLength() / 2) + 1 + chaserLocation * numChaseOffOnPerPeriod + i;
-        m_ledBuffer.setLED(position2, Color.kWhite);
+  @Override
+  public void periodic() {
+    LoopProfiler.start(profilerSlot);
+    if (useRenderThread) {
+      activeLayers.set(compositor.sample());
+      if (renderThread == null) {
+        renderThread = new Notifier(() -> renderFrame(activeLayers.get(), 0));
+        renderThread.setName("LED Render");
+        renderThread.startPeriodic(1.0 / LED.kRenderFrameRate);
       }
-
-      chaserLocation = (chaserLocation + 1) % numIterations;
-      setLEDs();
-
     } else {
-      setAll(Color.kBlack);
-      chaserLocation = 0;
+      // Closing waits for a frame in progress, so the two never render at once
+      close();
+      renderFrame(compositor.sample(), LED.kMinFramePeriod);
     }
-
+    LoopProfiler.stop(profilerSlot);
   }
 
-  public void setAll(Color color) {
-    for (int i = 0; i < m_ledBuffer.getLength(); i++) {
-      m_ledBuffer.setLED(i, color);
+  /**
+   * Stop and free the render thread, if it is running.
+   */
+  @Override
+  public void close() {
+    if (renderThread != null) {
+      renderThread.close();
+      renderThread = null;
     }
-    setLEDs();
-  }
-
-  // --------------------------------------- Private functions?
-
-  // alternate/shortcut to actually set the leds from the buffer
-  private void setLEDs() {
-
-    m_led.setData(m_ledBuffer);
   }
 
-  /*
-   * private void setFrontAll(Color color) {
-   * for (var i = 0; i < m_ledBuffer.getLength() / 2; i++) {
-   * m_ledBuffer.setLED(i, color);
-   * }
-   * }
-   * 
-   * public void setFrontHalf() {
-   * for (int i = 0; i < m_ledBuffer.getLength() / 2; i++) {
-   * if (i < m_ledBuffer.getLength() / 2) {
-   * m_ledBuffer.setLED(i, Color.kBlue);
-   * } else {
-   * m_ledBuffer.setLED(i, Color.kRed);
-   * }
-   * }
-   * }
-   * 
-   * public void setBackAll(Color color) {
-   * for (var i = m_ledBuffer.getLength() / 2; i < m_ledBuffer.getLength(); i++) {
-   * m_ledBuffer.setLED(i, color);
-   * }
-   * }
+  /**
+   * Render a frame and push it to the strip if it changed. Only ever called from one thread, the main loop or the
+   * render thread.
+   *
+   * @param active         Active layers, from {@link LedCompositor#sample()}.
+   * @param minFramePeriod Shortest time between two pushes.
    */
-
-  public void bothColors(boolean flipped) {
-    Color color1;
-    Color color2;
-
-    if (flipped) {
-      color1 = Color.kBlue;
-      color2 = Color.kRed;
-    } else {
-      color1 = Color.kRed;
-      color2 = Color.kBlue;
+  private void renderFrame(long active, double minFramePeriod) {
+    double now = Timer.getFPGATimestamp();
+    if (compositor.render(now, active)) {
+      touched = true;
     }
-
-    setAll(Color.kBlack);
-
-    for (var i = 0; i < m_ledBuffer.getLength() / 2; i++) {
-      m_ledBuffer.setLED(i, color1);
+    if (!touched || now - lastPushTimestamp < minFramePeriod) {
+      return;
     }
-    for (var i = 0; i > m_ledBuffer.getLength() / 2; i--) {
-      m_ledBuffer.setLED(i, color2);
+    touched = false;
+    int[] back = compositor.getPixels();
+    if (Arrays.equals(back, front)) {
+      return;
     }
 
+    for (int i = 0; i < back.length; i++) {
+      if (back[i] != front[i]) {
+        int color = back[i];
+        m_ledBuffer.setRGB(i, color >> 16 & 0xFF, color >> 8 & 0xFF, color & 0xFF);
+        front[i] = color;
+      }
+    }
+    m_led.setData(m_ledBuffer);
+    lastPushTimestamp = now;
   }
-}
\ No newline at end of file
+}
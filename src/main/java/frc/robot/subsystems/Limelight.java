@@ -19,14 +19,18 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
+import frc.robot.util.LoopProfiler;
 
 public class Limelight extends SubsystemBase {
     private PhotonCamera m_camera; 
     public PhotonPipelineResult result;
     public PhotonPoseEstimator m_photonEstimator;
+    private final int profilerSlot;
 
     public Limelight(String cameraName, Transform3d RobotToCam) {
         m_camera = new PhotonCamera(cameraName);
+        // One slot per camera, each instance has the same subsystem name
+        profilerSlot = LoopProfiler.register(getName() + " " + cameraName + ".periodic()");
         m_photonEstimator = new PhotonPoseEstimator(
             Constants.Vision.kTagLayout, 
             PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR, 
@@ -41,7 +45,9 @@ public class Limelight extends SubsystemBase {
 
     @Override
     public void periodic() {
+        LoopProfiler.start(profilerSlot);
         result = m_camera.getLatestResult();
+        LoopProfiler.stop(profilerSlot);
     }
 
     public boolean hasTarget() {
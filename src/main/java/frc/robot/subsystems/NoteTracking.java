@@ -6,18 +6,21 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.NoteAlignConstants;
 import frc.robot.LimelightHelpers;
+import frc.robot.util.LoopProfiler;
 
 public class NoteTracking extends SubsystemBase {
  
-  private String m_limelightName;
+  private LimelightHelpers.LimelightHandle m_limelight;
   private double tx;
   private boolean tv;
   private PIDController m_pid;
   public boolean active;
   public double correction;
 
+  private final int profilerSlot = LoopProfiler.register(getName() + ".periodic()");
+
   public NoteTracking() {
-    m_limelightName = "limelight";
+    m_limelight = LimelightHelpers.getHandle("limelight");
 
     m_pid = new PIDController(NoteAlignConstants.kP, NoteAlignConstants.kI, NoteAlignConstants.kD);
     m_pid.setTolerance(NoteAlignConstants.kTolerance);
@@ -28,16 +31,18 @@ public class NoteTracking extends SubsystemBase {
 
   @Override
   public void periodic() {
-    tv = LimelightHelpers.getTV(m_limelightName);
+    LoopProfiler.start(profilerSlot);
+    tv = m_limelight.getTV();
 
     if (active && tv) {
-      tx = LimelightHelpers.getTX(m_limelightName);
+      tx = m_limelight.getTX();
 
       correction = m_pid.calculate(tx);
     }
     if (!active) {
       correction = 0;
     }
+    LoopProfiler.stop(profilerSlot);
    }
 
    public void set(boolean state) {
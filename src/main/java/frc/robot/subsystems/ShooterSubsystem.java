@@ -3,19 +3,33 @@ package frc.robot.subsystems;
 import com.revrobotics.CANSparkLowLevel.MotorType;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.math.filter.Debouncer;
+import edu.wpi.first.math.filter.Debouncer.DebounceType;
 import edu.wpi.first.units.Measure;
 import edu.wpi.first.units.Units;
 import edu.wpi.first.units.Voltage;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 
 import java.lang.invoke.ConstantCallSite;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
+import com.revrobotics.CANSparkBase.ControlType;
 import com.revrobotics.CANSparkMax;
+import com.revrobotics.RelativeEncoder;
+import com.revrobotics.SparkPIDController;
+import com.revrobotics.SparkPIDController.ArbFFUnits;
 import frc.robot.Constants;
+import frc.robot.util.AimSolution;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.SparkMaxGains;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Verbosity;
 
 public class ShooterSubsystem extends SubsystemBase {
     private CANSparkMax leftFlywheelMotor = new CANSparkMax(Constants.Shooter.leftLeaderFlywheelMotor,
@@ -23,8 +37,38 @@ public class ShooterSubsystem extends SubsystemBase {
     private CANSparkMax rightFlywheelMotor = new CANSparkMax(Constants.Shooter.rightLeaderFlywheelMotor,
             MotorType.kBrushless);
 
+    private SparkPIDController leftController = leftFlywheelMotor.getPIDController();
+    private SparkPIDController rightController = rightFlywheelMotor.getPIDController();
+
     private boolean PIDEnabled = false;
 
+    private Debouncer atSpeedDebouncer = new Debouncer(Constants.Shooter.kAtSpeedDebounceTime, DebounceType.kRising);
+    private boolean atSpeed = false;
+    /**
+     * True while both flywheels are enabled and have held their setpoints for the
+     * debounce time, see {@link #isAtSpeed()}.
+     */
+    public final Trigger atSpeedTrigger = new Trigger(this::isAtSpeed);
+
+    private BooleanSupplier preSpinNoteHeld = null;
+    private Supplier<AimSolution> preSpinAim = null;
+    private boolean noteWasHeld = false;
+    private boolean preSpinArmed = false;
+    private boolean preSpinning = false;
+    private boolean inPreSpinZone = false;
+
+    private final int profilerSlot = LoopProfiler.register(getName() + ".periodic()");
+    private final Telemetry.DoubleEntry leftVoltageEntry = Telemetry.doubleEntry("Left Flywheel", Verbosity.HIGH);
+    private final Telemetry.DoubleEntry rightVoltageEntry = Telemetry.doubleEntry("Right Flywheel", Verbosity.HIGH);
+    private final Telemetry.DoubleEntry leftSetpointEntry = Telemetry.doubleEntry("Left PID", Verbosity.HIGH)
+            .changesOnly();
+    private final Telemetry.DoubleEntry rightSetpointEntry = Telemetry.doubleEntry("Right PID", Verbosity.HIGH)
+            .changesOnly();
+    private final Telemetry.DoubleEntry leftSpeedEntry = Telemetry.doubleEntry("Left Current", Verbosity.LOW);
+    private final Telemetry.DoubleEntry rightSpeedEntry = Telemetry.doubleEntry("Right Current", Verbosity.LOW);
+    private final Telemetry.BooleanEntry preSpinEntry = Telemetry.booleanEntry("Shooter PreSpin", Verbosity.LOW)
+            .changesOnly();
+
     private PIDController leftPID = new PIDController(Constants.Shooter.kLeftShooterkP, Constants.Shooter.kLeftShooterkI,
             Constants.Shooter.kLeftShooterkD);
     private PIDController rightPID = new PIDController(Constants.Shooter.kRightShooterkP, Constants.Shooter.kRightShooterkI,
@@ -44,7 +88,7 @@ public class ShooterSubsystem extends SubsystemBase {
                                     Units.Volts.of(
                                             leftFlywheelMotor.getAppliedOutput() * leftFlywheelMotor.getBusVoltage()))
                             .angularPosition(Units.Rotations.of(leftFlywheelMotor.getEncoder().getPosition()))
-                            .angularVelocity(Units.RotationsPerSecond.of(getLeftFlywheelSpeed())),
+                            .angularVelocity(Units.RPM.of(getLeftFlywheelSpeed())),
                     this));
 
     public ShooterSubsystem() {
@@ -53,8 +97,45 @@ public class ShooterSubsystem extends SubsystemBase {
         leftPID.setTolerance(Constants.Shooter.PID_TOLERANCE);
         rightPID.setTolerance(Constants.Shooter.PID_TOLERANCE);
 
+        // Scale the encoders to the flywheels so the onboard loop, the roboRIO loop
+        // and the feedforward all work in wheel RPM
+        for (CANSparkMax motor : new CANSparkMax[] { leftFlywheelMotor, rightFlywheelMotor }) {
+            RelativeEncoder encoder = motor.getEncoder();
+            encoder.setPositionConversionFactor(Constants.Shooter.CONVERSION_FACTOR);
+            encoder.setVelocityConversionFactor(Constants.Shooter.CONVERSION_FACTOR);
+        }
+
+        if (Constants.Shooter.kOnboardVelocityControl) {
+            configureOnboardControl(leftFlywheelMotor, leftController, Constants.Shooter.kLeftShooterkP,
+                    Constants.Shooter.kLeftShooterkI, Constants.Shooter.kLeftShooterkD);
+            configureOnboardControl(rightFlywheelMotor, rightController, Constants.Shooter.kRightShooterkP,
+                    Constants.Shooter.kRightShooterkI, Constants.Shooter.kRightShooterkD);
+        }
     }
 
+    /**
+     * Set up a flywheel SPARK MAX to close its own velocity loop. The encoder's
+     * default 32 ms measurement period with an average depth of 8 adds most of the
+     * lag in the measured velocity, so both are shortened here. The gains are
+     * converted by {@link SparkMaxGains}.
+     */
+    private static void configureOnboardControl(CANSparkMax motor, SparkPIDController controller, double kP,
+            double kI, double kD) {
+        motor.enableVoltageCompensation(Constants.Shooter.maxVoltage);
+        RelativeEncoder encoder = motor.getEncoder();
+        encoder.setMeasurementPeriod(Constants.Shooter.kVelocityMeasurementPeriod);
+        encoder.setAverageDepth(Constants.Shooter.kVelocityAverageDepth);
+
+        controller.setFeedbackDevice(encoder);
+        SparkMaxGains.apply(controller, kP, kI, kD, Constants.Shooter.maxVoltage);
+        controller.setFF(0);
+        controller.setOutputRange(-1, 1);
+    }
+
+    /**
+     * @param leftrpm  Left flywheel setpoint, in wheel RPM.
+     * @param rightrpm Right flywheel setpoint, in wheel RPM.
+     */
     public void setSpeed(double leftrpm, double rightrpm) {
         leftPID.setSetpoint(leftrpm); // Set the setpoint of the PID controller
         rightPID.setSetpoint(rightrpm);
@@ -67,50 +148,159 @@ public class ShooterSubsystem extends SubsystemBase {
     public void setFlywheelVoltage(double leftVoltage, double rightVoltage) {
         leftFlywheelMotor.setVoltage(leftVoltage); // Set the voltage of the motor
         rightFlywheelMotor.setVoltage(rightVoltage);
-        SmartDashboard.putNumber("Left Flywheel", leftVoltage);
-        SmartDashboard.putNumber("Right Flywheel", rightVoltage);
+        leftVoltageEntry.set(leftVoltage);
+        rightVoltageEntry.set(rightVoltage);
     }
 
     public void setIdleSpeed() {
-        leftFlywheelMotor.set(1000);
-        rightFlywheelMotor.set(1000);
+        setSpeed(Constants.Shooter.Presets.kidleSpeed);
+    }
+
+    /**
+     * Let the shooter spin itself up while no command is using it. Picking up a
+     * note arms pre-spin, and while that note is held the flywheels are run at the
+     * aim solution's speeds within {@link Constants.Shooter#kPreSpinDistance} of
+     * the speaker, and idle at {@link Constants.Shooter.Presets#kidleSpeed}
+     * outside it. Without a note they stop.
+     *
+     * <p>
+     * {@link #enable()} and any command requiring the shooter, like the SysId
+     * routines, take over from pre-spin. {@link #disable()} disarms it, so the
+     * wheels stay stopped until the next note is picked up.
+     *
+     * @param noteHeld True while a note is in the indexer.
+     * @param aim      Current speaker aim solution.
+     */
+    public void configurePreSpin(BooleanSupplier noteHeld, Supplier<AimSolution> aim) {
+        preSpinNoteHeld = noteHeld;
+        preSpinAim = aim;
     }
 
+    /**
+     * Pick the pre-spin setpoints for this loop.
+     *
+     * @return true if the flywheels should be run at them.
+     */
+    private boolean updatePreSpin() {
+        if (!Constants.Shooter.kPreSpinEnabled || preSpinNoteHeld == null) {
+            inPreSpinZone = false;
+            return false;
+        }
+
+        boolean noteHeld = preSpinNoteHeld.getAsBoolean();
+        if (noteHeld && !noteWasHeld) {
+            preSpinArmed = true;
+        }
+        noteWasHeld = noteHeld;
+
+        if (!preSpinArmed || !noteHeld || PIDEnabled || getCurrentCommand() != null
+                || !DriverStation.isEnabled()) {
+            inPreSpinZone = false;
+            return false;
+        }
+
+        AimSolution aim = preSpinAim.get();
+        // Leave the zone a little further out than it is entered so the wheels don't
+        // hunt between idle and shot speed on its edge
+        double limit = inPreSpinZone
+                ? Constants.Shooter.kPreSpinDistance + Constants.Shooter.kPreSpinHysteresis
+                : Constants.Shooter.kPreSpinDistance;
+        inPreSpinZone = aim.getDistance() <= limit;
+
+        if (inPreSpinZone) {
+            setSpeed(aim.getLeftRpm(), aim.getRightRpm());
+        } else {
+            setIdleSpeed();
+        }
+        return true;
+    }
+
+    /**
+     * @return Left flywheel speed in wheel RPM, already scaled by the encoder's
+     *         conversion factor.
+     */
     public double getLeftFlywheelSpeed() {
-        return leftFlywheelMotor.getEncoder().getVelocity() * Constants.Shooter.CONVERSION_FACTOR; // Get th // motor
+        return leftFlywheelMotor.getEncoder().getVelocity();
     }
 
+    /**
+     * @return Right flywheel speed in wheel RPM, already scaled by the encoder's
+     *         conversion factor.
+     */
     public double getRightFlywheelSpeed() {
-        return rightFlywheelMotor.getEncoder().getVelocity() * Constants.Shooter.CONVERSION_FACTOR; // Get the // motor
+        return rightFlywheelMotor.getEncoder().getVelocity();
     }
 
     public void periodic() {
-        SmartDashboard.putNumber("Left PID", leftPID.getSetpoint());
-        SmartDashboard.putNumber("Right PID", rightPID.getSetpoint());
-        SmartDashboard.putNumber("Left Current", getLeftFlywheelSpeed());
-        SmartDashboard.putNumber("Right Current", getRightFlywheelSpeed());
-         
+        LoopProfiler.start(profilerSlot);
+        boolean wasPreSpinning = preSpinning;
+        preSpinning = updatePreSpin();
+        boolean running = PIDEnabled || preSpinning;
+        preSpinEntry.set(inPreSpinZone);
 
-        double leftVoltage = leftPID.calculate(getLeftFlywheelSpeed()) + leftFF.calculate(leftPID.getSetpoint());
-        double rightVoltage = rightPID.calculate(getRightFlywheelSpeed()) + rightFF.calculate(rightPID.getSetpoint());
+        double leftSpeed = getLeftFlywheelSpeed();
+        double rightSpeed = getRightFlywheelSpeed();
+        leftSetpointEntry.set(leftPID.getSetpoint());
+        rightSetpointEntry.set(rightPID.getSetpoint());
+        leftSpeedEntry.set(leftSpeed);
+        rightSpeedEntry.set(rightSpeed);
 
-        if (PIDEnabled) {
-            setFlywheelVoltage(leftVoltage, rightVoltage);
+        atSpeed = atSpeedDebouncer.calculate(PIDEnabled
+                && Math.abs(leftSpeed - leftPID.getSetpoint()) <= Constants.Shooter.PID_TOLERANCE
+                && Math.abs(rightSpeed - rightPID.getSetpoint()) <= Constants.Shooter.PID_TOLERANCE);
+
+        if (Constants.Shooter.kOnboardVelocityControl) {
+            // The SPARK MAXes close the loop, only the feedforward comes from here
+            double leftFeedforward = leftFF.calculate(leftPID.getSetpoint());
+            double rightFeedforward = rightFF.calculate(rightPID.getSetpoint());
+            leftVoltageEntry.set(leftFeedforward);
+            rightVoltageEntry.set(rightFeedforward);
+            if (running) {
+                leftController.setReference(leftPID.getSetpoint(), ControlType.kVelocity, 0, leftFeedforward,
+                        ArbFFUnits.kVoltage);
+                rightController.setReference(rightPID.getSetpoint(), ControlType.kVelocity, 0, rightFeedforward,
+                        ArbFFUnits.kVoltage);
+            }
+        } else {
+            double leftVoltage = leftPID.calculate(leftSpeed) + leftFF.calculate(leftPID.getSetpoint());
+            double rightVoltage = rightPID.calculate(rightSpeed) + rightFF.calculate(rightPID.getSetpoint());
+
+            if (running) {
+                setFlywheelVoltage(leftVoltage, rightVoltage);
+            }
+        }
+
+        if (wasPreSpinning && !running) {
+            setFlywheelVoltage(0, 0);
         }
 
+        LoopProfiler.stop(profilerSlot);
     }
 
-    public boolean isBusy() {
-        return !(leftPID.atSetpoint() && rightPID.atSetpoint());
+    /**
+     * @return true if both flywheels have been within
+     *         {@link Constants.Shooter#PID_TOLERANCE} of their setpoints for
+     *         {@link Constants.Shooter#kAtSpeedDebounceTime}.
+     */
+    public boolean isAtSpeed() {
+        return atSpeed;
+    }
 
+    public boolean isBusy() {
+        return !atSpeed;
     }
 
     public void enable() {
         PIDEnabled = true;
     }
 
+    /**
+     * Stop the flywheels. This also disarms pre-spin, idle included, for the note
+     * being held.
+     */
     public void disable() {
         PIDEnabled = false;
+        preSpinArmed = false;
         setFlywheelVoltage(0, 0);
     }
 
@@ -14,15 +14,26 @@ import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableListenerPoller;
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
+import frc.robot.Constants;
 import frc.robot.Robot;
+import frc.robot.util.CameraHealth;
+import frc.robot.util.MeasurementGate;
+import frc.robot.util.PoseHistory;
 import java.awt.Desktop;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Supplier;
 import org.photonvision.EstimatedRobotPose;
 import org.photonvision.PhotonCamera;
@@ -44,7 +55,7 @@ import swervelib.telemetry.SwerveDriveTelemetry;
  * from
  * https://gitlab.com/ironclad_code/ironclad-2024/-/blob/master/src/main/java/frc/robot/vision/Vision.java?ref_type=heads
  */
-public class Vision {
+public class Vision implements AutoCloseable {
 
     /**
      * April Tag Field Layout of the year.
@@ -55,15 +66,15 @@ public class Vision {
      * Photon Vision Simulation
      */
     public VisionSystemSim visionSim;
-    /**
-     * Count of times that the odom thinks we're more than 10meters away from the
-     * april tag.
-     */
-    private double longDistangePoseEstimationCount = 0;
     /**
      * Current pose from the pose estimator using wheel odometry.
      */
     private Supplier<Pose2d> currentPose;
+    /**
+     * Odometry pose history, used to compare each frame against the pose from
+     * when it was captured.
+     */
+    private final PoseHistory poseHistory;
     /**
      * Ambiguity defined as a value between (0,1). Used in
      * {@link Vision#filterPose}.
@@ -73,16 +84,55 @@ public class Vision {
      * Field from {@link swervelib.SwerveDrive#field}
      */
     private Field2d field2d;
+    /**
+     * Finished measurements from the camera threads, drained on the main thread by
+     * {@link Vision#updatePoseEstimation(SwerveDrive)}.
+     */
+    private final ConcurrentLinkedQueue<Measurement> measurements = new ConcurrentLinkedQueue<>();
+    /**
+     * Every camera, cached so the periodic health check does not copy
+     * {@link Cameras#values()}.
+     */
+    private static final Cameras[] cameras = Cameras.values();
+    /**
+     * Capture timestamp of the last measurement added to the pose estimator.
+     */
+    private double lastMeasurementTimestamp = Double.NaN;
+    /**
+     * One solving thread per camera, stopped by {@link Vision#close()}.
+     */
+    private final List<CameraThread> cameraThreads = new ArrayList<>();
+
+    /**
+     * A vision pose measurement that is ready to be added to the pose estimator.
+     *
+     * @param pose             Estimated field relative robot pose.
+     * @param timestampSeconds Capture timestamp of the frame the pose was solved from.
+     * @param tagCount         Number of field tags seen in the frame.
+     * @param avgTagDistance   Average distance from the pose to those tags, in meters.
+     * @param stdDevs          Standard deviations of the estimate.
+     */
+    public record Measurement(Pose2d pose, double timestampSeconds, int tagCount, double avgTagDistance,
+            Matrix<N3, N1> stdDevs) {
+    }
+
+    /**
+     * Standard deviations for an estimate that should not move the pose at all.
+     */
+    private static final Matrix<N3, N1> kUntrustedStdDevs = VecBuilder.fill(Double.MAX_VALUE, Double.MAX_VALUE,
+            Double.MAX_VALUE);
 
     /**
      * Constructor for the Vision class.
      *
      * @param currentPose Current pose supplier, should reference
      *                    {@link SwerveDrive#getPose()}
+     * @param poseHistory Odometry pose history, kept up to date by the caller.
      * @param field       Current field, should be {@link SwerveDrive#field}
      */
-    public Vision(Supplier<Pose2d> currentPose, Field2d field) {
+    public Vision(Supplier<Pose2d> currentPose, PoseHistory poseHistory, Field2d field) {
         this.currentPose = currentPose;
+        this.poseHistory = poseHistory;
         this.field2d = field;
 
         if (Robot.isSimulation()) {
@@ -95,6 +145,41 @@ public class Vision {
 
             openSimCameraViews();
         }
+
+        for (Cameras c : Cameras.values()) {
+            CameraThread thread = new CameraThread(c);
+            cameraThreads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stop the camera threads and release their NetworkTables listeners. Frames
+     * already queued are dropped. Each thread is waited on, for up to
+     * {@link Constants.Vision#kCameraThreadJoinTimeout}, so none of them is still
+     * writing to its {@link Cameras} state when a new Vision starts its own.
+     */
+    @Override
+    public void close() {
+        for (CameraThread thread : cameraThreads) {
+            thread.interrupt();
+        }
+        // A waiting thread checks in at least every kCameraThreadTimeout
+        long joinMillis = (long) (Constants.Vision.kCameraThreadJoinTimeout * 1000);
+        for (CameraThread thread : cameraThreads) {
+            try {
+                thread.join(joinMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (thread.isAlive()) {
+                DriverStation.reportWarning(thread.getName() + " did not stop", false);
+            } else {
+                thread.poller.close();
+            }
+        }
+        cameraThreads.clear();
+        measurements.clear();
     }
 
     /**
@@ -117,8 +202,10 @@ public class Vision {
     }
 
     /**
-     * Update the pose estimation inside of {@link SwerveDrive} with all of the
-     * given poses.
+     * Update the pose estimation inside of {@link SwerveDrive} with every
+     * measurement the camera threads have finished since the last call. The pose
+     * solving itself happens on the camera threads, so this only drains the queue
+     * and raises the latency alert of any unhealthy camera.
      *
      * @param swerveDrive {@link SwerveDrive} instance.
      */
@@ -127,88 +214,115 @@ public class Vision {
             visionSim.update(swerveDrive.getPose());
 
         }
-        for (Cameras camera : Cameras.values()) {
-            Optional<EstimatedRobotPose> poseEst = getEstimatedGlobalPose(camera);
-            if (poseEst.isPresent()) {
-                var pose = poseEst.get();
-                swerveDrive.addVisionMeasurement(pose.estimatedPose.toPose2d(),
-                        pose.timestampSeconds,
-                        getEstimationStdDevs(camera));
-            }
+        for (Cameras c : cameras) {
+            c.latencyAlert.set(!c.health.isHealthy());
         }
+        Measurement measurement;
+        while ((measurement = measurements.poll()) != null) {
+            swerveDrive.addVisionMeasurement(measurement.pose(),
+                    measurement.timestampSeconds(),
+                    measurement.stdDevs());
+            lastMeasurementTimestamp = measurement.timestampSeconds();
+        }
+
+    }
 
+    /**
+     * @return Capture timestamp of the last measurement added to the pose
+     *         estimator, or NaN if there hasn't been one.
+     */
+    public double getLastMeasurementTimestamp() {
+        return lastMeasurementTimestamp;
     }
 
     /**
-     * Generates the estimated robot pose. Returns empty if:
+     * Solve one camera frame into a {@link Measurement}, in a single pass. The
+     * frame is run through the pose estimator exactly once and the tag count,
+     * average tag distance and standard deviations are all computed from that same
+     * estimate and frame. Returns empty if:
      * <ul>
      * <li>No Pose Estimates could be generated</li>
      * <li>The generated pose estimate was considered not accurate</li>
+     * <li>The camera's {@link MeasurementGate} rejected the estimate</li>
      * </ul>
      *
-     * @return an {@link EstimatedRobotPose} with an estimated pose, timestamp, and
-     *         targets used to create the estimate
+     * @param camera Camera the frame came from.
+     * @param result Frame to solve.
+     * @return the finished measurement, or empty if the frame gave nothing usable.
      */
-    public Optional<EstimatedRobotPose> getEstimatedGlobalPose(Cameras camera) {
-        Optional<EstimatedRobotPose> poseEst = filterPose(camera.poseEstimator.update());
+    private Optional<Measurement> estimate(Cameras camera, PhotonPipelineResult result) {
+        Optional<EstimatedRobotPose> poseEst = filterPose(camera.poseEstimator.update(result));
+        if (poseEst.isEmpty()) {
+            return Optional.empty();
+        }
+        EstimatedRobotPose estimate = poseEst.get();
+        Pose2d pose = estimate.estimatedPose.toPose2d();
         // Uncomment to enable outputting of vision targets in sim.
         /*
-         * poseEst.ifPresent(estimatedRobotPose -> field2d.getObject(camera +
-         * " est pose")
-         * .setPose(estimatedRobotPose.estimatedPose.toPose2d()));
+         * field2d.getObject(camera + " est pose").setPose(pose);
          */
-        return poseEst;
-    }
 
-    /**
-     * The standard deviations of the estimated pose from
-     * {@link Vision#getEstimatedGlobalPose(Cameras)}, for use with
-     * {@link edu.wpi.first.math.estimator.SwerveDrivePoseEstimator
-     * SwerveDrivePoseEstimator}. This should only be used
-     * when there are targets visible.
-     *
-     * @param camera Desired camera to get the standard deviation of the estimated
-     *               pose.
-     */
-    public Matrix<N3, N1> getEstimationStdDevs(Cameras camera) {
-        var poseEst = getEstimatedGlobalPose(camera);
-        var estStdDevs = camera.singleTagStdDevs;
-        var targets = getLatestResult(camera).getTargets();
         int numTags = 0;
         double avgDist = 0;
-        for (var tgt : targets) {
-            var tagPose = camera.poseEstimator.getFieldTags().getTagPose(tgt.getFiducialId());
+        double worstAmbiguity = 0;
+        for (PhotonTrackedTarget target : result.getTargets()) {
+            var tagPose = camera.poseEstimator.getFieldTags().getTagPose(target.getFiducialId());
             if (tagPose.isEmpty()) {
                 continue;
             }
             numTags++;
-            if (poseEst.isPresent()) {
-                avgDist += PhotonUtils.getDistanceToPose(poseEst.get().estimatedPose.toPose2d(),
-                        tagPose.get().toPose2d());
-            }
+            worstAmbiguity = Math.max(worstAmbiguity, target.getPoseAmbiguity());
+            avgDist += PhotonUtils.getDistanceToPose(pose, tagPose.get().toPose2d());
+        }
+        if (numTags > 0) {
+            avgDist /= numTags;
+        }
+
+        Matrix<N3, N1> stdDevs = getEstimationStdDevs(camera, numTags, avgDist);
+        if (!camera.health.isHealthy()) {
+            // Late or stuttering frames are less trustworthy, lean on odometry instead
+            stdDevs = stdDevs.times(Constants.Vision.kUnhealthyStdDevScale);
+        }
+        // Compare against where odometry had the robot when the frame was captured, not where it is now
+        double[] odometry = camera.odometryScratch;
+        if (!poseHistory.sample(estimate.timestampSeconds, odometry)) {
+            Pose2d now = currentPose.get();
+            odometry[0] = now.getX();
+            odometry[1] = now.getY();
+            odometry[2] = now.getRotation().getRadians();
         }
+        // Untrusted frames are rejected by the gate too, so they never count as a fix or lock vision
+        if (!camera.gate.test(odometry, pose, stdDevs, estimate.timestampSeconds, numTags, worstAmbiguity)) {
+            return Optional.empty();
+        }
+        return Optional.of(new Measurement(pose, estimate.timestampSeconds, numTags, avgDist, stdDevs));
+    }
+
+    /**
+     * The standard deviations of a pose estimate, for use with
+     * {@link edu.wpi.first.math.estimator.SwerveDrivePoseEstimator
+     * SwerveDrivePoseEstimator}.
+     *
+     * @param camera  Camera the estimate came from.
+     * @param numTags Number of field tags seen in the frame.
+     * @param avgDist Average distance from the estimated pose to those tags.
+     */
+    public static Matrix<N3, N1> getEstimationStdDevs(Cameras camera, int numTags, double avgDist) {
         if (numTags == 0) {
-            return estStdDevs;
+            return camera.singleTagStdDevs;
         }
-        avgDist /= numTags;
         // Decrease std devs if multiple targets are visible
-        if (numTags > 1) {
-            estStdDevs = camera.multiTagStdDevs;
-        }
+        var estStdDevs = numTags > 1 ? camera.multiTagStdDevs : camera.singleTagStdDevs;
         // Increase std devs based on (average) distance
         if (numTags == 1 && avgDist > 4) {
-            estStdDevs = VecBuilder.fill(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
-        } else {
-            estStdDevs = estStdDevs.times(1 + (avgDist * avgDist / 30));
+            return kUntrustedStdDevs;
         }
-
-        return estStdDevs;
+        return estStdDevs.times(1 + (avgDist * avgDist / 30));
     }
 
     /**
-     * Filter pose via the ambiguity and find best estimate between all of the
-     * camera's throwing out distances more than
-     * 10m for a short amount of time.
+     * Filter pose via the ambiguity. Estimates far from odometry are handled
+     * afterwards by each camera's {@link MeasurementGate}.
      *
      * @param pose Estimated robot pose.
      * @return Could be empty if there isn't a good reading.
@@ -226,19 +340,6 @@ public class Vision {
             if (bestTargetAmbiguity > maximumAmbiguity) {
                 return Optional.empty();
             }
-
-            // est pose is very far from recorded robot pose
-            if (PhotonUtils.getDistanceToPose(currentPose.get(), pose.get().estimatedPose.toPose2d()) > 1) {
-                longDistangePoseEstimationCount++;
-
-                // if it calculates that were 10 meter away for more than 10 times in a row its
-                // probably right
-                if (longDistangePoseEstimationCount < 10) {
-                    return Optional.empty();
-                }
-            } else {
-                longDistangePoseEstimationCount = 0;
-            }
             return pose;
         }
         return Optional.empty();
@@ -251,7 +352,11 @@ public class Vision {
      * @return Photon result from sim or a real camera.
      */
     public PhotonPipelineResult getLatestResult(Cameras camera) {
-
+        // Once the camera thread is running it owns the PhotonCamera, hand out its copy instead
+        PhotonPipelineResult latest = camera.latestResult;
+        if (latest != null) {
+            return latest;
+        }
         return Robot.isReal() ? camera.camera.getLatestResult() : camera.cameraSim.getCamera().getLatestResult();
     }
 
@@ -336,6 +441,54 @@ public class Vision {
         field2d.getObject("tracked targets").setPoses(poses);
     }
 
+    /**
+     * Background thread that solves every new frame from one camera as it
+     * arrives, at the camera's own frame rate, and queues the result for the main
+     * thread.
+     */
+    private class CameraThread extends Thread {
+        private final Cameras camera;
+        private final NetworkTableListenerPoller poller;
+
+        CameraThread(Cameras camera) {
+            super("Vision " + camera.camera.getName());
+            setDaemon(true);
+            this.camera = camera;
+
+            // PhotonVision publishes each pipeline result as one raw value, wake up whenever it changes
+            NetworkTableInstance inst = NetworkTableInstance.getDefault();
+            poller = new NetworkTableListenerPoller(inst);
+            poller.addListener(inst.getTable("photonvision").getSubTable(camera.camera.getName())
+                    .getRawTopic("rawBytes"), EnumSet.of(NetworkTableEvent.Kind.kValueAll));
+        }
+
+        @Override
+        public void run() {
+            while (!isInterrupted()) {
+                try {
+                    if (!WPIUtilJNI.waitForObjectTimeout(poller.getHandle(), Constants.Vision.kCameraThreadTimeout)) {
+                        camera.health.update();
+                        continue;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (isInterrupted()) {
+                    return;
+                }
+                poller.readQueue();
+
+                PhotonPipelineResult result = camera.camera.getLatestResult();
+                camera.latestResult = result;
+                camera.health.frame(result.getTimestampSeconds(), result.getLatencyMillis());
+
+                long solveStart = System.nanoTime();
+                estimate(camera, result).ifPresent(measurements::add);
+                camera.health.solved(System.nanoTime() - solveStart);
+            }
+        }
+    }
+
     /**
      * Camera Enum to select each camera
      */
@@ -391,6 +544,22 @@ public class Vision {
          * Simulated camera instance which only exists during simulations.
          */
         public PhotonCameraSim cameraSim;
+        /**
+         * Outlier gate for this camera's estimates, only used by its thread.
+         */
+        public final MeasurementGate gate;
+        /**
+         * Rolling latency and frame statistics, updated by this camera's thread.
+         */
+        public final CameraHealth health;
+        /**
+         * Odometry pose lookup buffer, only used by this camera's thread.
+         */
+        private final double[] odometryScratch = new double[3];
+        /**
+         * Latest result read by this camera's thread.
+         */
+        private volatile PhotonPipelineResult latestResult;
 
         /**
          * Construct a Photon Camera class with help. Standard deviations are fake
@@ -412,6 +581,8 @@ public class Vision {
             latencyAlert = new Alert("'" + name + "' Camera is experiencing high latency.", AlertType.WARNING);
 
             camera = new PhotonCamera(name);
+            gate = new MeasurementGate(name);
+            health = new CameraHealth(name);
 
             // https://docs.wpilib.org/en/stable/docs/software/basic-programming/coordinate-system.html
             robotToCamTransform = new Transform3d(robotToCamTranslation, robotToCamRotation);
@@ -30,6 +30,13 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
+import frc.robot.subsystems.Vision;
+import frc.robot.util.AimSolution;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.PoseHistory;
+import frc.robot.util.SwerveSetpointGenerator;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.Verbosity;
 //import frc.robot.LimelightHelpers;
 
 import java.io.File;
@@ -54,6 +61,36 @@ public class SwerveSubsystem extends SubsystemBase {
    * Maximum speed of the robot in meters per second, used to limit acceleration.
    */
   public double maximumSpeed = Units.feetToMeters(16.5);
+  /**
+   * PhotonVision pose estimation, only set up when
+   * {@link Constants.Vision#kPhotonVisionEnabled} is true.
+   */
+  private Vision vision;
+  /**
+   * Odometry poses from the last few loops, so late vision frames can be compared
+   * against the pose from when they were captured.
+   */
+  private final PoseHistory poseHistory = new PoseHistory(Constants.Vision.kPoseHistorySize);
+  /**
+   * {@link LoopProfiler} slot for {@link #periodic()}.
+   */
+  private final int profilerSlot = LoopProfiler.register(getName() + ".periodic()");
+  private final Telemetry.DoubleEntry distanceToSpeakerEntry = Telemetry.doubleEntry("Distance to speaker",
+      Verbosity.LOW);
+  private final Telemetry.DoubleEntry angleToSpeakerEntry = Telemetry.doubleEntry("Angle to Speaker",
+      Verbosity.LOW);
+  /**
+   * Speaker aim solution, recomputed once per loop in {@link #periodic()}.
+   */
+  private final AimSolution aimSolution = new AimSolution();
+  /**
+   * Acceleration, skid, tip and steering limits for {@link #driveLimited}.
+   */
+  private final SwerveSetpointGenerator setpointGenerator;
+  private final ChassisSpeeds limitedSpeeds = new ChassisSpeeds();
+  private double lastSetpointTimestamp = Double.NEGATIVE_INFINITY;
+  private final Telemetry.DoubleArrayEntry setpointEntry = Telemetry.doubleArrayEntry("Drive Setpoint",
+      Verbosity.HIGH, 4);
 
   /**
    * Initialize {@link SwerveDrive} with the directory provided.
@@ -73,9 +110,33 @@ public class SwerveSubsystem extends SubsystemBase {
     }
     swerveDrive.setHeadingCorrection(true); // Heading correction should only be used while controlling the robot via
                                             // angle.
+    setpointGenerator = new SwerveSetpointGenerator(swerveDrive.swerveDriveConfiguration.moduleLocationsMeters,
+        maximumSpeed);
     swerveDrive.swerveDrivePoseEstimator.setVisionMeasurementStdDevs(VecBuilder.fill(.7, .7, 9999999));
     SmartDashboard.putData("Limelight Position", fieldLimelight);
     setupPathPlanner();
+    if (Constants.Vision.kPhotonVisionEnabled) {
+      setupPhotonVision();
+    }
+  }
+
+  /**
+   * Setup the photon vision class. Its camera threads start solving poses
+   * immediately. Any previous setup is stopped first.
+   */
+  public void setupPhotonVision() {
+    disableVision();
+    vision = new Vision(swerveDrive::getPose, poseHistory, swerveDrive.field);
+  }
+
+  /**
+   * Stop PhotonVision pose estimation and its camera threads.
+   */
+  public void disableVision() {
+    if (vision != null) {
+      vision.close();
+      vision = null;
+    }
   }
 
   /**
@@ -142,6 +203,7 @@ public class SwerveSubsystem extends SubsystemBase {
   public SwerveSubsystem(SwerveDriveConfiguration driveCfg, SwerveControllerConfiguration controllerCfg) {
     swerveDrive = new SwerveDrive(driveCfg, controllerCfg, maximumSpeed);
     swerveDrive.swerveDrivePoseEstimator.setVisionMeasurementStdDevs(VecBuilder.fill(.7, .7, 9999999));
+    setpointGenerator = new SwerveSetpointGenerator(driveCfg.moduleLocationsMeters, maximumSpeed);
   }
 
   /**
@@ -193,10 +255,62 @@ public class SwerveSubsystem extends SubsystemBase {
 
   }
 
+  /**
+   * Drive towards the requested speeds as fast as the modules, the wheels' grip
+   * and the robot's tipping point allow, see {@link SwerveSetpointGenerator}. For
+   * drive commands that pass on driver input. If nothing has driven through here
+   * for a few loops the limits start again from the robot's measured velocity.
+   *
+   * @param xVelocity     Requested x velocity in meters per second.
+   * @param yVelocity     Requested y velocity in meters per second.
+   * @param omega         Requested angular velocity in radians per second.
+   * @param fieldRelative True if the velocities are field relative, false for
+   *                      robot relative.
+   */
+  public void driveLimited(double xVelocity, double yVelocity, double omega, boolean fieldRelative) {
+    double now = Timer.getFPGATimestamp();
+    double dt = now - lastSetpointTimestamp;
+    lastSetpointTimestamp = now;
+    if (dt > Constants.Drivebase.kSetpointResetTime) {
+      ChassisSpeeds measured = swerveDrive.getRobotVelocity();
+      setpointGenerator.reset(measured.vxMetersPerSecond, measured.vyMetersPerSecond,
+          measured.omegaRadiansPerSecond);
+      dt = 0.02;
+    }
+
+    double robotX = xVelocity;
+    double robotY = yVelocity;
+    if (fieldRelative) {
+      // Rotate into the robot frame, the module limits only make sense there
+      double heading = swerveDrive.getOdometryHeading().getRadians();
+      double cos = Math.cos(heading);
+      double sin = Math.sin(heading);
+      robotX = xVelocity * cos + yVelocity * sin;
+      robotY = -xVelocity * sin + yVelocity * cos;
+    }
+    setpointGenerator.update(robotX, robotY, omega, dt);
+
+    limitedSpeeds.vxMetersPerSecond = setpointGenerator.getVx();
+    limitedSpeeds.vyMetersPerSecond = setpointGenerator.getVy();
+    limitedSpeeds.omegaRadiansPerSecond = setpointGenerator.getOmega();
+    setpointEntry.set(0, limitedSpeeds.vxMetersPerSecond)
+        .set(1, limitedSpeeds.vyMetersPerSecond)
+        .set(2, limitedSpeeds.omegaRadiansPerSecond)
+        .set(3, setpointGenerator.getLastScale())
+        .publish();
+    swerveDrive.drive(limitedSpeeds);
+  }
+
   @Override
   public void periodic() {
-    SmartDashboard.putNumber("Distance to speaker", distanceToSpeaker());
-    SmartDashboard.putNumber("Angle to Speaker", angletoSpeaker().getDegrees());
+    LoopProfiler.start(profilerSlot);
+    aimSolution.update(swerveDrive.getPose(), swerveDrive.getFieldVelocity());
+    distanceToSpeakerEntry.set(aimSolution.getDistance());
+    angleToSpeakerEntry.set(Math.toDegrees(aimSolution.getBearing()));
+    if (vision != null) {
+      poseHistory.add(Timer.getFPGATimestamp(), swerveDrive.getPose());
+      vision.updatePoseEstimation(swerveDrive);
+    }
     /*
      * if (LimelightHelpers.getTV("limelight")) {
      * addVisionMeasurement(LimelightHelpers.getBotPose2d_wpiBlue("limelight"),
@@ -225,6 +339,7 @@ public class SwerveSubsystem extends SubsystemBase {
           mt2.timestampSeconds);
     }
     */
+    LoopProfiler.stop(profilerSlot);
   }
 
   @Override
@@ -251,6 +366,7 @@ public class SwerveSubsystem extends SubsystemBase {
    */
   public void resetOdometry(Pose2d initialHolonomicPose) {
     swerveDrive.resetOdometry(initialHolonomicPose);
+    poseHistory.clear();
   }
 
   /**
@@ -287,6 +403,7 @@ public class SwerveSubsystem extends SubsystemBase {
    */
   public void zeroGyro() {
     swerveDrive.zeroGyro();
+    poseHistory.clear();
   }
 
   /**
@@ -313,15 +430,14 @@ public class SwerveSubsystem extends SubsystemBase {
    * speeds in which direction. The other for
    * the angle of the robot.
    *
-   * @param xInput   X joystick input for the robot to move in the X direction.
-   * @param yInput   Y joystick input for the robot to move in the Y direction.
+   * @param xInput   X joystick input for the robot to move in the X direction, already shaped by an
+   *                 {@link frc.robot.util.InputShaper}.
+   * @param yInput   Y joystick input for the robot to move in the Y direction, already shaped.
    * @param headingX X joystick which controls the angle of the robot.
    * @param headingY Y joystick which controls the angle of the robot.
    * @return {@link ChassisSpeeds} which can be sent to th Swerve Drive.
    */
   public ChassisSpeeds getTargetSpeeds(double xInput, double yInput, double headingX, double headingY) {
-    xInput = Math.pow(xInput, 3);
-    yInput = Math.pow(yInput, 3);
     return swerveDrive.swerveController.getTargetSpeeds(xInput,
         yInput,
         headingX,
@@ -333,14 +449,13 @@ public class SwerveSubsystem extends SubsystemBase {
   /**
    * Get the chassis speeds based on controller input of 1 joystick and one angle.
    *
-   * @param xInput X joystick input for the robot to move in the X direction.
-   * @param yInput Y joystick input for the robot to move in the Y direction.
+   * @param xInput X joystick input for the robot to move in the X direction, already shaped by an
+   *               {@link frc.robot.util.InputShaper}.
+   * @param yInput Y joystick input for the robot to move in the Y direction, already shaped.
    * @param angle  The angle in as a {@link Rotation2d}.
    * @return {@link ChassisSpeeds} which can be sent to th Swerve Drive.
    */
   public ChassisSpeeds getTargetSpeeds(double xInput, double yInput, Rotation2d angle) {
-    xInput = Math.pow(xInput, 3);
-    yInput = Math.pow(yInput, 3);
     return swerveDrive.swerveController.getTargetSpeeds(xInput,
         yInput,
         angle.getRadians(),
@@ -422,27 +537,30 @@ public class SwerveSubsystem extends SubsystemBase {
     return swerveDrive.swerveDrivePoseEstimator;
   }
 
-  public Rotation2d angletoSpeaker() {
-    Translation2d dTranslation;
+  /**
+   * Get the speaker aim solution for this loop. The returned object is reused and
+   * updated in place every loop, read from it instead of keeping it.
+   *
+   * @return The current {@link AimSolution}.
+   */
+  public AimSolution getAimSolution() {
+    return aimSolution;
+  }
 
-    if (isRedAlliance()) {
-      return Constants.aprilTag.redSpeaker.minus(swerveDrive.getPose().getTranslation()).getAngle();
-    } else {
-      return swerveDrive.getPose().getTranslation().minus(Constants.aprilTag.blueSpeaker).getAngle();
-    }
-    // Change else back to blue speaker
+  /**
+   * @return true if a vision measurement has been fused within the last
+   *         {@link Constants.Vision#kLockedMeasurementAge}.
+   */
+  public boolean isVisionLocked() {
+    return vision != null
+        && Timer.getFPGATimestamp() - vision.getLastMeasurementTimestamp() < Constants.Vision.kLockedMeasurementAge;
+  }
 
+  public Rotation2d angletoSpeaker() {
+    return Rotation2d.fromRadians(aimSolution.getBearing());
   }
 
   public double distanceToSpeaker() {
-    Translation2d dTranslation = swerveDrive.getPose().getTranslation();
-
-    if (isRedAlliance()) {
-      SmartDashboard.putNumber("Distance to red speaker", dTranslation.getDistance(Constants.aprilTag.redSpeaker));
-      return dTranslation.getDistance(Constants.aprilTag.redSpeaker);
-    } else {
-      SmartDashboard.putNumber("Distance to blue speaker", dTranslation.getDistance(Constants.aprilTag.blueSpeaker));
-      return dTranslation.getDistance(Constants.aprilTag.blueSpeaker);
-    }
+    return aimSolution.getDistance();
   }
 }
@@ -0,0 +1,151 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.robot.Constants;
+
+/**
+ * Speaker aim solution, recomputed once per loop by its owner and read by everything that needs to aim.
+ *
+ * <p>
+ * The alliance speaker position is looked up from {@link Constants.aprilTag} and cached. The alliance is only re-read
+ * while the robot is disabled, since it cannot change during a match. Every {@link #update(Pose2d, ChassisSpeeds)}
+ * then works on primitives and writes into this object, so it does no allocation.
+ *
+ * <p>
+ * The solution leads the shot for the robot's own motion. The note keeps the robot's field velocity after it leaves
+ * the shooter, so instead of the speaker it is aimed at a virtual target, the speaker minus that velocity times the
+ * note's time of flight. Time of flight depends on the distance to the virtual target, so the two are iterated up to
+ * {@link Constants.Shooter#kMovingShotIterations} times or until the virtual target stops moving. Distance, bearing,
+ * arm setpoint and flywheel speeds are all for the virtual target, the last two looked up in the {@link ShotTable}.
+ */
+public final class AimSolution {
+
+  private boolean allianceKnown = false;
+  private boolean red = false;
+  private double targetX;
+  private double targetY;
+
+  private double distance;
+  private double bearing;
+  private double armPosition;
+  private double leftRpm;
+  private double rightRpm;
+
+  private final ShotTable shotTable = new ShotTable();
+  private final double[] shot = new double[3];
+
+  /**
+   * Recompute the solution for a robot pose and velocity.
+   *
+   * @param pose          Field relative robot pose.
+   * @param fieldVelocity Field relative robot velocity.
+   */
+  public void update(Pose2d pose, ChassisSpeeds fieldVelocity) {
+    if (!allianceKnown || DriverStation.isDisabled()) {
+      refreshAlliance();
+    }
+
+    double robotX = pose.getX();
+    double robotY = pose.getY();
+    double aimX = targetX;
+    double aimY = targetY;
+    for (int i = 0; i < Constants.Shooter.kMovingShotIterations; i++) {
+      double timeOfFlight = timeOfFlight(Math.hypot(aimX - robotX, aimY - robotY));
+      double nextX = targetX - fieldVelocity.vxMetersPerSecond * timeOfFlight;
+      double nextY = targetY - fieldVelocity.vyMetersPerSecond * timeOfFlight;
+      double moved = Math.hypot(nextX - aimX, nextY - aimY);
+      aimX = nextX;
+      aimY = nextY;
+      if (moved < Constants.Shooter.kMovingShotTolerance) {
+        break;
+      }
+    }
+
+    double dx = aimX - robotX;
+    double dy = aimY - robotY;
+    distance = Math.hypot(dx, dy);
+    // Turn the shooter, not the front of the robot, towards the target
+    bearing = MathUtil.angleModulus(Math.atan2(dy, dx) - Constants.Shooter.kShooterFacing);
+
+    shotTable.lookup(distance, shot);
+    armPosition = shot[0];
+    leftRpm = shot[1];
+    rightRpm = shot[2];
+  }
+
+  /**
+   * Time from the shot being taken to the note reaching the speaker. The note leaves at
+   * {@link Constants.Shooter#kNoteExitVelocity} along the straight line from the shooter to the speaker opening, so its
+   * flight time is that line's length over the exit velocity.
+   *
+   * @param distance Horizontal distance to the target in meters.
+   * @return Time of flight in seconds, including the feed delay.
+   */
+  private static double timeOfFlight(double distance) {
+    double rise = Constants.aprilTag.speakerHeight - Constants.Shooter.kShooterHeight;
+    return Constants.Shooter.kShotFeedDelay + Math.hypot(distance, rise) / Constants.Shooter.kNoteExitVelocity;
+  }
+
+  private void refreshAlliance() {
+    var alliance = DriverStation.getAlliance();
+    red = alliance.isPresent() && alliance.get() == Alliance.Red;
+    allianceKnown = alliance.isPresent();
+    Translation2d speaker = red ? Constants.aprilTag.redSpeaker : Constants.aprilTag.blueSpeaker;
+    targetX = speaker.getX();
+    targetY = speaker.getY();
+  }
+
+  /**
+   * @return true once the driver station has said which alliance the robot is on.
+   */
+  public boolean isAllianceKnown() {
+    return allianceKnown;
+  }
+
+  /**
+   * @return true if the speaker being aimed at is the red one.
+   */
+  public boolean isRed() {
+    return red;
+  }
+
+  /**
+   * @return Distance from the robot to the (virtual) speaker in meters.
+   */
+  public double getDistance() {
+    return distance;
+  }
+
+  /**
+   * @return Field relative heading to hold while shooting, in radians.
+   */
+  public double getBearing() {
+    return bearing;
+  }
+
+  /**
+   * @return Arm setpoint for {@link frc.robot.subsystems.ArmSubsystem#setPosition(double)}, in rotations.
+   */
+  public double getArmPosition() {
+    return armPosition;
+  }
+
+  /**
+   * @return Left flywheel speed in RPM.
+   */
+  public double getLeftRpm() {
+    return leftRpm;
+  }
+
+  /**
+   * @return Right flywheel speed in RPM.
+   */
+  public double getRightRpm() {
+    return rightRpm;
+  }
+}
@@ -0,0 +1,128 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
+import frc.robot.util.Telemetry.DoubleArrayEntry;
+import frc.robot.util.Telemetry.Verbosity;
+
+/**
+ * Rolling health statistics for one camera: result latency, time between frames, dropped frames and the age of the
+ * newest result.
+ *
+ * <p>
+ * Latency and frame interval are averaged over the last {@link Constants.Vision#kHealthWindowFrames} frames. A frame
+ * interval longer than one and a half expected frame periods is counted as the frames that should have arrived in the
+ * gap. The camera is unhealthy while the average latency, the dropped frames in the window or the result age is over
+ * its threshold. The time the robot spends solving each frame is averaged over the same window. The statistics are
+ * published as {@code [latency ms, interval ms, dropped frames, age ms, solve ms]}.
+ *
+ * <p>
+ * The statistics are only updated from the camera's own thread, {@link #isHealthy()} may be read from any thread.
+ */
+public final class CameraHealth {
+
+  private static final int kWindow = Constants.Vision.kHealthWindowFrames;
+
+  private final double[] latencyMillis = new double[kWindow];
+  private final double[] intervalMillis = new double[kWindow];
+  private final int[] dropped = new int[kWindow];
+  private final double[] solveMillis = new double[kWindow];
+  private double latencySum = 0;
+  private double intervalSum = 0;
+  private int droppedSum = 0;
+  private int head = 0;
+  private int count = 0;
+  private double solveSum = 0;
+  private int solveHead = 0;
+  private int solveCount = 0;
+
+  private double lastFrameTimestamp = Double.NaN;
+  private volatile boolean healthy = true;
+  private final DoubleArrayEntry statsEntry;
+
+  /**
+   * @param name Name the statistics are published under.
+   */
+  public CameraHealth(String name) {
+    statsEntry = Telemetry.doubleArrayEntry("Vision/" + name + "/Health", Verbosity.HIGH, 5).withPeriod(0.25);
+  }
+
+  /**
+   * Record a new frame.
+   *
+   * @param timestampSeconds Capture timestamp of the frame.
+   * @param latencyMs        Pipeline latency of the frame in milliseconds.
+   */
+  public void frame(double timestampSeconds, double latencyMs) {
+    if (timestampSeconds == lastFrameTimestamp) {
+      return;
+    }
+    if (!Double.isNaN(lastFrameTimestamp)) {
+      double interval = (timestampSeconds - lastFrameTimestamp) * 1000;
+      double expected = Constants.Vision.kExpectedFramePeriod * 1000;
+      int missed = interval > expected * 1.5 ? (int) Math.round(interval / expected) - 1 : 0;
+
+      if (count == kWindow) {
+        latencySum -= latencyMillis[head];
+        intervalSum -= intervalMillis[head];
+        droppedSum -= dropped[head];
+      } else {
+        count++;
+      }
+      latencyMillis[head] = latencyMs;
+      intervalMillis[head] = interval;
+      dropped[head] = missed;
+      latencySum += latencyMs;
+      intervalSum += interval;
+      droppedSum += missed;
+      head = (head + 1) % kWindow;
+    }
+    lastFrameTimestamp = timestampSeconds;
+    update();
+  }
+
+  /**
+   * Record how long solving a frame took. Published with the next {@link #update()}.
+   *
+   * @param nanos Time spent solving the frame in nanoseconds.
+   */
+  public void solved(long nanos) {
+    double millis = nanos / 1e6;
+    if (solveCount == kWindow) {
+      solveSum -= solveMillis[solveHead];
+    } else {
+      solveCount++;
+    }
+    solveMillis[solveHead] = millis;
+    solveSum += millis;
+    solveHead = (solveHead + 1) % kWindow;
+  }
+
+  /**
+   * Re-evaluate health without a new frame, so a camera that stops sending frames goes unhealthy.
+   */
+  public void update() {
+    double ageMillis = Double.isNaN(lastFrameTimestamp)
+        ? Double.POSITIVE_INFINITY
+        : (Timer.getFPGATimestamp() - lastFrameTimestamp) * 1000;
+    double latency = count > 0 ? latencySum / count : 0;
+
+    healthy = latency <= Constants.Vision.kMaxLatencyMs
+        && droppedSum <= Constants.Vision.kMaxDroppedFrames
+        && ageMillis <= Constants.Vision.kMaxResultAge * 1000;
+
+    statsEntry.set(0, latency)
+        .set(1, count > 0 ? intervalSum / count : 0)
+        .set(2, droppedSum)
+        .set(3, Math.min(ageMillis, Double.MAX_VALUE))
+        .set(4, solveCount > 0 ? solveSum / solveCount : 0)
+        .publish();
+  }
+
+  /**
+   * @return true if the camera is within every threshold.
+   */
+  public boolean isHealthy() {
+    return healthy;
+  }
+}
@@ -0,0 +1,149 @@
+package frc.robot.util;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Turns a pair of raw joystick axes into drive inputs, the same way for every drive mode.
+ *
+ * <p>
+ * The stick is sampled once per loop, before any command runs, and put through:
+ * <ol>
+ * <li>A radial deadband on the stick's distance from center, so diagonals behave like the axes. The rest of the
+ * travel is rescaled to start from zero.</li>
+ * <li>An expo curve on that distance, {@code (1 - expo) * n + expo * n^3}. 0 is linear and 1 is the plain cube the
+ * drive commands used to apply.</li>
+ * <li>Precision mode, which scales the result down while its button is held.</li>
+ * <li>A slew rate limit on the output vector, in full stick per second.</li>
+ * </ol>
+ * The direction of the stick is kept through every step. A single axis, like rotation, is shaped as a pair with the
+ * second axis at zero. All of it is done on primitives and the results are read from fields, so the suppliers given
+ * to the drive commands cost nothing extra.
+ */
+public final class InputShaper {
+
+  /**
+   * How one stick is shaped.
+   *
+   * @param deadband       Stick distance from center that is ignored, 0 to 1.
+   * @param expo           Expo curve, 0 (linear) to 1 (cubic).
+   * @param slewRate       Fastest the output may change, in full stick per second.
+   * @param precisionScale Output scale while precision mode is on.
+   */
+  public record Config(double deadband, double expo, double slewRate, double precisionScale) {
+  }
+
+  private final Config config;
+  private final DoubleSupplier rawX;
+  private final DoubleSupplier rawY;
+  private final BooleanSupplier precision;
+
+  private double x;
+  private double y;
+  private double lastTimestamp = -1;
+
+  /**
+   * Shape a stick and keep it up to date every loop.
+   *
+   * @param rawX      First axis, already signed the way the robot wants it.
+   * @param rawY      Second axis, already signed the way the robot wants it.
+   * @param precision Precision mode button.
+   */
+  public InputShaper(Config config, DoubleSupplier rawX, DoubleSupplier rawY, BooleanSupplier precision) {
+    this.config = config;
+    this.rawX = rawX;
+    this.rawY = rawY;
+    this.precision = precision;
+    CommandScheduler.getInstance().getDefaultButtonLoop().bind(this::update);
+  }
+
+  /**
+   * A shaper that is only fed through {@link #update(double, double, boolean, double)}, for tests.
+   */
+  InputShaper(Config config) {
+    this.config = config;
+    this.rawX = () -> 0;
+    this.rawY = () -> 0;
+    this.precision = () -> false;
+  }
+
+  /**
+   * Shape a single axis.
+   */
+  public InputShaper(Config config, DoubleSupplier raw, BooleanSupplier precision) {
+    this(config, raw, () -> 0, precision);
+  }
+
+  /**
+   * Sample the stick and shape it. Runs once per loop from the scheduler's button loop.
+   */
+  private void update() {
+    double now = Timer.getFPGATimestamp();
+    double dt = now - lastTimestamp;
+    lastTimestamp = now;
+    update(rawX.getAsDouble(), rawY.getAsDouble(), precision.getAsBoolean(), DriverStation.isDisabled() ? 0 : dt);
+  }
+
+  /**
+   * Shape one sample of the stick.
+   *
+   * @param dt Seconds since the last sample. Outside of 0 to 1 there is nothing to ramp from, and the output jumps
+   *           straight to the shaped stick.
+   */
+  void update(double inX, double inY, boolean precise, double dt) {
+    double scale = shape(Math.hypot(inX, inY), config.deadband(), config.expo());
+    if (precise) {
+      scale *= config.precisionScale();
+    }
+    double targetX = inX * scale;
+    double targetY = inY * scale;
+
+    if (dt <= 0 || dt > 1) {
+      // Nothing to ramp from
+      x = targetX;
+      y = targetY;
+      return;
+    }
+
+    double dx = targetX - x;
+    double dy = targetY - y;
+    double step = Math.hypot(dx, dy);
+    double maxStep = config.slewRate() * dt;
+    if (step > maxStep) {
+      dx *= maxStep / step;
+      dy *= maxStep / step;
+    }
+    x += dx;
+    y += dy;
+  }
+
+  /**
+   * @param magnitude Stick distance from center.
+   * @return What to multiply each axis by to apply the deadband and expo curve to the distance.
+   */
+  static double shape(double magnitude, double deadband, double expo) {
+    if (magnitude <= deadband) {
+      return 0;
+    }
+    double n = Math.min((magnitude - deadband) / (1 - deadband), 1);
+    return n * (1 - expo + expo * n * n) / magnitude;
+  }
+
+  /**
+   * @return The shaped first axis, -1 to 1.
+   */
+  public double getX() {
+    return x;
+  }
+
+  /**
+   * @return The shaped second axis, -1 to 1.
+   */
+  public double getY() {
+    return y;
+  }
+}
@@ -0,0 +1,136 @@
+package frc.robot.util;
+
+import java.util.Arrays;
+
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * An LED animation as keyframes of packed {@code 0xRRGGBB} pixels, all rendered when the animation is created.
+ *
+ * <p>
+ * Every frame is shown for the same {@link #getFramePeriod() frame period} and the frame to show is picked from the
+ * time since the animation started, so playing one is an array lookup and its speed does not depend on how often it is
+ * drawn. Animations are built for a fixed number of pixels, the length of the segment they will be drawn on.
+ */
+public final class LedAnimation {
+
+  public static final int BLACK = 0;
+  public static final int WHITE = 0xFFFFFF;
+
+  private final int[][] frames;
+  private final double framePeriod;
+  private final boolean loop;
+
+  /**
+   * @param frames      Keyframes, each at least as long as the segment the animation is drawn on.
+   * @param framePeriod Seconds each frame is shown for.
+   * @param loop        Start over after the last frame, instead of holding it.
+   */
+  public LedAnimation(int[][] frames, double framePeriod, boolean loop) {
+    this.frames = frames;
+    this.framePeriod = framePeriod;
+    this.loop = loop;
+  }
+
+  /**
+   * @return {@code color} packed as {@code 0xRRGGBB}.
+   */
+  public static int rgb(Color color) {
+    return rgb((int) (color.red * 255), (int) (color.green * 255), (int) (color.blue * 255));
+  }
+
+  public static int rgb(int red, int green, int blue) {
+    return (red & 0xFF) << 16 | (green & 0xFF) << 8 | (blue & 0xFF);
+  }
+
+  /**
+   * @param elapsedSeconds Time since the animation started.
+   * @return Index of the frame to show.
+   */
+  public int frameAt(double elapsedSeconds) {
+    if (frames.length == 1 || elapsedSeconds <= 0) {
+      return 0;
+    }
+    long frame = (long) (elapsedSeconds / framePeriod);
+    return loop ? (int) (frame % frames.length) : (int) Math.min(frame, frames.length - 1);
+  }
+
+  public int[] getFrame(int index) {
+    return frames[index];
+  }
+
+  public int getFrameCount() {
+    return frames.length;
+  }
+
+  public double getFramePeriod() {
+    return framePeriod;
+  }
+
+  /**
+   * @return One color on every pixel.
+   */
+  public static LedAnimation solid(int length, int color) {
+    int[] frame = new int[length];
+    Arrays.fill(frame, color);
+    return new LedAnimation(new int[][] {frame}, 1, true);
+  }
+
+  public static LedAnimation solid(int length, Color color) {
+    return solid(length, rgb(color));
+  }
+
+  /**
+   * @param onSeconds  Time the color is shown for.
+   * @param offSeconds Time the pixels are off for.
+   * @return The color blinking on every pixel. Both times are rounded to multiples of the shorter one.
+   */
+  public static LedAnimation blink(int length, int color, double onSeconds, double offSeconds) {
+    double period = Math.min(onSeconds, offSeconds);
+    int on = Math.max(1, (int) Math.round(onSeconds / period));
+    int off = Math.max(1, (int) Math.round(offSeconds / period));
+    int[] lit = solid(length, color).getFrame(0);
+    int[] dark = new int[length];
+    int[][] frames = new int[on + off][];
+    for (int i = 0; i < frames.length; i++) {
+      frames[i] = i < on ? lit : dark;
+    }
+    return new LedAnimation(frames, period, true);
+  }
+
+  /**
+   * @param hueStep     Hue (out of 180) the rainbow moves along the strip by per frame.
+   * @param framePeriod Seconds per frame.
+   * @return A rainbow spread over the pixels that moves along them.
+   */
+  public static LedAnimation rainbow(int length, int hueStep, double framePeriod) {
+    int[][] frames = new int[180 / hueStep][length];
+    for (int f = 0; f < frames.length; f++) {
+      for (int i = 0; i < length; i++) {
+        int hue = (f * hueStep + (i * 180 / length)) % 180;
+        frames[f][i] = rgb(Color.fromHSV(hue, 255, 128));
+      }
+    }
+    return new LedAnimation(frames, framePeriod, true);
+  }
+
+  /**
+   * Two chasers that start in the middle of the pixels and move out to both ends.
+   *
+   * @param chaseLength Lit pixels in each chaser.
+   * @param step        Pixels the chasers move per frame.
+   */
+  public static LedAnimation chaseFromMiddle(int length, int color, int chaseLength, int step, double framePeriod) {
+    int middle = length / 2;
+    int[][] frames = new int[middle / step - 1][length];
+    for (int f = 0; f < frames.length; f++) {
+      int first1 = middle - f * step - chaseLength + 1;
+      int first2 = middle + 1 + f * step;
+      for (int i = 0; i < length; i++) {
+        boolean lit = (i >= first1 && i < first1 + chaseLength) || (i >= first2 && i < first2 + chaseLength);
+        frames[f][i] = lit ? color : BLACK;
+      }
+    }
+    return new LedAnimation(frames, framePeriod, true);
+  }
+}
@@ -0,0 +1,154 @@
+package frc.robot.util;
+
+import java.util.Arrays;
+
+import frc.robot.util.LedLayer.Segment;
+
+/**
+ * Blends a stack of {@link LedLayer}s into one frame of packed {@code 0xRRGGBB} pixels.
+ *
+ * <p>
+ * Layers are kept sorted by priority. {@link #render(double, long)} only redraws the frame when a layer was shown or
+ * hidden, swapped its animation or moved on to another keyframe, so a strip whose layers are not animating costs one
+ * check per layer.
+ *
+ * <p>
+ * Which layers are active is {@link #sample() sampled} separately from rendering, as a bit mask, so the conditions can
+ * be read on the thread that owns the robot state and the frame rendered on another. Layers have to be added before
+ * rendering starts.
+ */
+public final class LedCompositor {
+
+  private final int[] pixels;
+  // Replaced, never changed in place, so a thread that reads it once sees a whole stack
+  private volatile LedLayer[] layers = new LedLayer[0];
+
+  /**
+   * @param length Number of pixels on the strip.
+   */
+  public LedCompositor(int length) {
+    pixels = new int[length];
+  }
+
+  /**
+   * Add a layer above every layer of lower or equal priority.
+   *
+   * @return the layer, for keeping a reference to it.
+   */
+  public synchronized LedLayer add(LedLayer layer) {
+    LedLayer[] layers = this.layers;
+    if (layers.length == Long.SIZE) {
+      throw new IllegalStateException("An LED compositor can only have " + Long.SIZE + " layers");
+    }
+    int index = 0;
+    while (index < layers.length && layers[index].getPriority() <= layer.getPriority()) {
+      index++;
+    }
+    LedLayer[] grown = new LedLayer[layers.length + 1];
+    System.arraycopy(layers, 0, grown, 0, index);
+    grown[index] = layer;
+    System.arraycopy(layers, index, grown, index + 1, layers.length - index);
+    this.layers = grown;
+    return layer;
+  }
+
+  /**
+   * Read every layer's condition.
+   *
+   * @return Bit {@code i} set if the {@code i}th layer from the bottom is active.
+   */
+  public long sample() {
+    LedLayer[] layers = this.layers;
+    long active = 0;
+    for (int i = 0; i < layers.length; i++) {
+      if (layers[i].isActive()) {
+        active |= 1L << i;
+      }
+    }
+    return active;
+  }
+
+  /**
+   * Bring the frame up to date.
+   *
+   * @param timestampSeconds Time to render the animations at.
+   * @param activeLayers     Active layers, from {@link #sample()}.
+   * @return true if {@link #getPixels()} changed.
+   */
+  public boolean render(double timestampSeconds, long activeLayers) {
+    LedLayer[] layers = this.layers;
+    boolean changed = false;
+    for (int i = 0; i < layers.length; i++) {
+      LedLayer layer = layers[i];
+      LedAnimation animation = layer.getAnimation();
+      boolean active = (activeLayers & 1L << i) != 0;
+      boolean restarted = active && (!layer.shown || animation != layer.lastAnimation);
+      if (restarted) {
+        layer.startTimestamp = timestampSeconds;
+      }
+      layer.shown = active;
+      layer.lastAnimation = animation;
+
+      int frame = active ? animation.frameAt(timestampSeconds - layer.startTimestamp) : -1;
+      if (restarted || frame != layer.lastFrame) {
+        layer.lastFrame = frame;
+        changed = true;
+      }
+    }
+    if (!changed) {
+      return false;
+    }
+
+    Arrays.fill(pixels, 0);
+    for (int i = 0; i < layers.length; i++) {
+      LedLayer layer = layers[i];
+      if (layer.shown) {
+        blend(layer, layer.lastAnimation.getFrame(layer.lastFrame));
+      }
+    }
+    return true;
+  }
+
+  private void blend(LedLayer layer, int[] frame) {
+    Segment segment = layer.getSegment();
+    int start = segment.start();
+    int length = Math.min(segment.length(), pixels.length - start);
+    switch (layer.getBlendMode()) {
+      case OVERWRITE:
+        System.arraycopy(frame, 0, pixels, start, length);
+        break;
+      case OVER:
+        for (int i = 0; i < length; i++) {
+          if (frame[i] != 0) {
+            pixels[start + i] = frame[i];
+          }
+        }
+        break;
+      case ADD:
+        for (int i = 0; i < length; i++) {
+          int under = pixels[start + i];
+          int over = frame[i];
+          pixels[start + i] = Math.min(255, (under >> 16 & 0xFF) + (over >> 16 & 0xFF)) << 16
+              | Math.min(255, (under >> 8 & 0xFF) + (over >> 8 & 0xFF)) << 8
+              | Math.min(255, (under & 0xFF) + (over & 0xFF));
+        }
+        break;
+      case MAX:
+        for (int i = 0; i < length; i++) {
+          int under = pixels[start + i];
+          int over = frame[i];
+          pixels[start + i] = Math.max(under & 0xFF0000, over & 0xFF0000)
+              | Math.max(under & 0xFF00, over & 0xFF00)
+              | Math.max(under & 0xFF, over & 0xFF);
+        }
+        break;
+    }
+  }
+
+  /**
+   * @return The current frame. Only valid until the next {@link #render(double, long)}.
+   */
+  public int[] getPixels() {
+    return pixels;
+  }
+}
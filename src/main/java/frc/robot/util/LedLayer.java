@@ -0,0 +1,102 @@
+package frc.robot.util;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * One layer of the LED compositor: an {@link LedAnimation} drawn on a segment of the strip while the layer is active.
+ *
+ * <p>
+ * Layers are drawn from the lowest priority to the highest, each blended onto what is under it. A layer is active while
+ * both its condition and its own enabled flag are true, so robot state can drive a layer straight from a supplier and
+ * commands can turn one on and off without requiring the LED subsystem. The animation starts over every time the
+ * layer becomes active.
+ */
+public final class LedLayer {
+
+  public enum BlendMode {
+    /** Replace every pixel of the segment. */
+    OVERWRITE,
+    /** Replace only the pixels that are lit in the animation, the rest show through. */
+    OVER,
+    /** Add to the pixels underneath, per channel, clamped to full brightness. */
+    ADD,
+    /** Keep the brighter of the two, per channel. */
+    MAX
+  }
+
+  /**
+   * A named range of pixels on the strip.
+   */
+  public record Segment(String name, int start, int length) {
+  }
+
+  private final String name;
+  private final Segment segment;
+  private final int priority;
+  private final BlendMode blendMode;
+  private volatile LedAnimation animation;
+  private BooleanSupplier condition = () -> true;
+  private volatile boolean enabled = true;
+
+  // Compositor state, only touched by LedCompositor
+  boolean shown = false;
+  double startTimestamp = 0;
+  int lastFrame = -1;
+  LedAnimation lastAnimation = null;
+
+  public LedLayer(String name, Segment segment, int priority, BlendMode blendMode, LedAnimation animation) {
+    this.name = name;
+    this.segment = segment;
+    this.priority = priority;
+    this.blendMode = blendMode;
+    this.animation = animation;
+  }
+
+  /**
+   * Only show the layer while {@code condition} is true. The condition is read once per loop, on the main thread.
+   *
+   * @return this, for chaining.
+   */
+  public LedLayer when(BooleanSupplier condition) {
+    this.condition = condition;
+    return this;
+  }
+
+  /**
+   * Turn the layer on or off, on top of its condition. Layers start enabled.
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Swap the animation, it starts from its first frame.
+   */
+  public void setAnimation(LedAnimation animation) {
+    this.animation = animation;
+  }
+
+  public boolean isActive() {
+    return enabled && condition.getAsBoolean();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Segment getSegment() {
+    return segment;
+  }
+
+  public int getPriority() {
+    return priority;
+  }
+
+  public BlendMode getBlendMode() {
+    return blendMode;
+  }
+
+  public LedAnimation getAnimation() {
+    return animation;
+  }
+}
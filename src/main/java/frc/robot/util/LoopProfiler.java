@@ -0,0 +1,228 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants;
+import java.util.Arrays;
+import java.util.HashMap;
+import swervelib.telemetry.Alert;
+import swervelib.telemetry.Alert.AlertType;
+
+/**
+ * Lightweight timing profiler for the main robot loop.
+ *
+ * <p>
+ * Each profiled component (a subsystem's periodic(), a command's execute(), the scheduler itself) owns a slot with a
+ * fixed-size ring buffer of per-loop times in microseconds. Every {@link Constants.Profiler#kWindowLoops} loops the
+ * p50/p99/max of each slot is published to NetworkTables under {@code LoopProfiler/<name>} as {@code [p50, p99, max]}
+ * in milliseconds, and any slot whose p99 exceeds {@link Constants.Profiler#kBudgetShare} of the loop budget raises an
+ * alert.
+ *
+ * <p>
+ * All storage is allocated when a slot is registered, so the hot path does no allocation. The profiler is only meant to
+ * be used from the main robot thread.
+ */
+public final class LoopProfiler {
+
+  /**
+   * Maximum number of slots, including command slots that are registered on the fly.
+   */
+  private static final int kMaxSlots = 64;
+  private static final int kWindow = Constants.Profiler.kWindowLoops;
+
+  private static final NetworkTable table = NetworkTableInstance.getDefault().getTable("LoopProfiler");
+
+  private static final int[][] samples = new int[kMaxSlots][];
+  private static final int[] sampleCount = new int[kMaxSlots];
+  private static final int[] sampleHead = new int[kMaxSlots];
+  private static final long[] startNanos = new long[kMaxSlots];
+  private static final long[] loopNanos = new long[kMaxSlots];
+  private static final boolean[] ranThisLoop = new boolean[kMaxSlots];
+  private static final DoubleArrayPublisher[] publishers = new DoubleArrayPublisher[kMaxSlots];
+  private static final Alert[] budgetAlerts = new Alert[kMaxSlots];
+  private static final long[] budgetMicros = new long[kMaxSlots];
+  private static int slotCount = 0;
+
+  /**
+   * Command slots, looked up by command name. Commands built at runtime share the slot of every other command with the
+   * same name, so the map stays as small as the set of names and holds no reference to the commands themselves. The
+   * name's hash is cached by String, so the lookup in the execute hook does not allocate.
+   */
+  private static final HashMap<String, Integer> commandSlots = new HashMap<>();
+  private static int commandOverflowSlot = -1;
+  private static long commandMarkNanos;
+
+  private static final int[] sortScratch = new int[kWindow];
+  private static final double[] statsScratch = new double[3];
+  private static int loopsInWindow = 0;
+  private static long loopStartNanos;
+  private static int robotPeriodicSlot = -1;
+  private static int schedulerOverheadSlot = -1;
+
+  private LoopProfiler() {
+  }
+
+  /**
+   * Register a named slot. Call this once, at construction time, and keep the returned handle.
+   *
+   * @param name Name the slot is published under.
+   * @return Handle to pass to {@link #start(int)} and {@link #stop(int)}, or -1 if the profiler is disabled or full.
+   */
+  public static int register(String name) {
+    return register(name, Constants.Profiler.kBudgetShare);
+  }
+
+  private static int register(String name, double budgetShare) {
+    if (!Constants.Profiler.kEnabled || slotCount >= kMaxSlots) {
+      return -1;
+    }
+    int slot = slotCount++;
+    samples[slot] = new int[kWindow];
+    budgetMicros[slot] = (long) (Constants.Profiler.kLoopBudget * budgetShare * 1e6);
+    publishers[slot] = table.getDoubleArrayTopic(name).publish();
+    budgetAlerts[slot] = new Alert("Loop Profiler", name + " is over its share of the loop budget",
+        AlertType.WARNING);
+    return slot;
+  }
+
+  /**
+   * Register the whole-loop slots and hook the command scheduler so every command's execute() is timed without
+   * touching the commands themselves. Call this once from robotInit after all button bindings have been made.
+   *
+   * <p>
+   * The scheduler polls buttons immediately before it executes commands, and reports each command right after its
+   * execute(). The time between consecutive marks is charged to the command, which also includes the previous
+   * command's isFinished() check.
+   */
+  public static void install() {
+    if (!Constants.Profiler.kEnabled) {
+      return;
+    }
+    robotPeriodicSlot = register("Robot.robotPeriodic()", 1.0);
+    schedulerOverheadSlot = register("CommandScheduler overhead");
+    commandOverflowSlot = register("Other commands");
+    CommandScheduler.getInstance().getDefaultButtonLoop().bind(LoopProfiler::markCommandPhase);
+    CommandScheduler.getInstance().onCommandExecute(LoopProfiler::commandExecuted);
+  }
+
+  /**
+   * Start timing a slot.
+   *
+   * @param slot Handle from {@link #register(String)}.
+   */
+  public static void start(int slot) {
+    if (slot < 0) {
+      return;
+    }
+    startNanos[slot] = System.nanoTime();
+  }
+
+  /**
+   * Stop timing a slot and add the elapsed time to this loop's total for it.
+   *
+   * @param slot Handle from {@link #register(String)}.
+   */
+  public static void stop(int slot) {
+    if (slot < 0) {
+      return;
+    }
+    charge(slot, System.nanoTime() - startNanos[slot]);
+  }
+
+  /**
+   * Mark the start of a robot loop. Call at the top of robotPeriodic.
+   */
+  public static void beginLoop() {
+    loopStartNanos = System.nanoTime();
+    commandMarkNanos = loopStartNanos;
+  }
+
+  /**
+   * Mark the end of a robot loop, commit every slot that ran to its ring buffer and publish the window statistics when
+   * the window is full. Call at the bottom of robotPeriodic.
+   */
+  public static void endLoop() {
+    if (!Constants.Profiler.kEnabled) {
+      return;
+    }
+    if (robotPeriodicSlot >= 0) {
+      // Whatever the subsystems and commands did not account for is the scheduler's own bookkeeping
+      long total = System.nanoTime() - loopStartNanos;
+      long accounted = 0;
+      for (int slot = 0; slot < slotCount; slot++) {
+        accounted += loopNanos[slot];
+      }
+      charge(robotPeriodicSlot, total);
+      charge(schedulerOverheadSlot, Math.max(0, total - accounted));
+    }
+
+    for (int slot = 0; slot < slotCount; slot++) {
+      if (ranThisLoop[slot]) {
+        int[] ring = samples[slot];
+        ring[sampleHead[slot]] = (int) Math.min(loopNanos[slot] / 1000, Integer.MAX_VALUE);
+        sampleHead[slot] = (sampleHead[slot] + 1) % kWindow;
+        if (sampleCount[slot] < kWindow) {
+          sampleCount[slot]++;
+        }
+        loopNanos[slot] = 0;
+        ranThisLoop[slot] = false;
+      }
+    }
+
+    if (++loopsInWindow >= kWindow) {
+      loopsInWindow = 0;
+      publishWindow();
+    }
+  }
+
+  private static void charge(int slot, long nanos) {
+    loopNanos[slot] += nanos;
+    ranThisLoop[slot] = true;
+  }
+
+  private static void markCommandPhase() {
+    commandMarkNanos = System.nanoTime();
+  }
+
+  private static void commandExecuted(Command command) {
+    long now = System.nanoTime();
+    String name = command.getName();
+    Integer slot = commandSlots.get(name);
+    if (slot == null) {
+      int registered = register(name + ".execute()");
+      slot = registered >= 0 ? registered : commandOverflowSlot;
+      commandSlots.put(name, slot);
+    }
+    if (slot >= 0) {
+      charge(slot, now - commandMarkNanos);
+    }
+    commandMarkNanos = now;
+  }
+
+  private static void publishWindow() {
+    for (int slot = 0; slot < slotCount; slot++) {
+      int count = sampleCount[slot];
+      if (count == 0) {
+        continue;
+      }
+      System.arraycopy(samples[slot], 0, sortScratch, 0, count);
+      Arrays.sort(sortScratch, 0, count);
+
+      int p50 = sortScratch[(count - 1) / 2];
+      int p99 = sortScratch[Math.max(0, (int) Math.ceil(count * 0.99) - 1)];
+      int max = sortScratch[count - 1];
+
+      statsScratch[0] = p50 / 1000.0;
+      statsScratch[1] = p99 / 1000.0;
+      statsScratch[2] = max / 1000.0;
+      publishers[slot].set(statsScratch);
+      budgetAlerts[slot].set(p99 > budgetMicros[slot]);
+
+      sampleCount[slot] = 0;
+      sampleHead[slot] = 0;
+    }
+  }
+}
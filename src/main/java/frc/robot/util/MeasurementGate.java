@@ -0,0 +1,201 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import frc.robot.Constants;
+import frc.robot.util.Telemetry.DoubleArrayEntry;
+import frc.robot.util.Telemetry.DoubleEntry;
+import frc.robot.util.Telemetry.Verbosity;
+
+/**
+ * Outlier gate for the pose measurements from a single camera.
+ *
+ * <p>
+ * A measurement is compared against the odometry pose from when its frame was captured by its squared Mahalanobis
+ * distance, using a diagonal covariance made of the odometry and measurement variances. Odometry drifts as the robot
+ * drives, so its variance starts at {@link Constants.Vision#kOdometryStdDevs} and grows with the distance driven since
+ * the last accepted measurement, by {@link Constants.Vision#kOdometryDriftPerMeter}. Measurements inside
+ * {@link Constants.Vision#kGateChiSquared} are accepted.
+ *
+ * <p>
+ * Measurements outside it are held in a short history window, and once {@link Constants.Vision#kGateConsecutiveFrames}
+ * of them in a row agree with each other to within {@link Constants.Vision#kGateConsistencyDistance} the odometry is
+ * assumed to be the one that is wrong (after a collision, for example) and the measurement is accepted anyway. Frames
+ * that are wrong the same way every time, like a single misidentified tag, would also agree, so only measurements from
+ * at least {@link Constants.Vision#kGateOverrideMinTags} tags with an ambiguity no worse than
+ * {@link Constants.Vision#kGateOverrideMaxAmbiguity} may take part in an override.
+ *
+ * <p>
+ * Measurements whose standard deviations are too large to square, like a far single-tag frame that was marked as
+ * untrusted, carry no information. They are rejected before the distance test, which they would otherwise always
+ * pass, and do not reset the drift or the window.
+ *
+ * <p>
+ * The residual to odometry of every measurement, accepted or not, is published as {@code [x, y, theta]} in meters
+ * and degrees.
+ *
+ * <p>
+ * Each gate keeps its own state, so one misbehaving camera cannot open or close the gate for another. A gate is only
+ * meant to be used from one thread.
+ */
+public final class MeasurementGate {
+
+  private static final int kWindow = Constants.Vision.kGateConsecutiveFrames;
+
+  private final double[] odometryVariance = new double[3];
+  private double lastOdometryX = Double.NaN;
+  private double lastOdometryY = Double.NaN;
+  private double drivenSinceFix = 0;
+  private final double[] windowX = new double[kWindow];
+  private final double[] windowY = new double[kWindow];
+  private int windowCount = 0;
+  private double lastRejectedTimestamp = Double.NEGATIVE_INFINITY;
+
+  private long accepted = 0;
+  private long rejected = 0;
+  private final DoubleEntry acceptedEntry;
+  private final DoubleEntry rejectedEntry;
+  private final DoubleArrayEntry residualEntry;
+
+  /**
+   * @param name Name the accepted/rejected counters are published under.
+   */
+  public MeasurementGate(String name) {
+    Matrix<N3, N1> odometryStdDevs = Constants.Vision.kOdometryStdDevs;
+    for (int i = 0; i < 3; i++) {
+      odometryVariance[i] = odometryStdDevs.get(i, 0) * odometryStdDevs.get(i, 0);
+    }
+    acceptedEntry = Telemetry.doubleEntry("Vision/" + name + "/Accepted", Verbosity.HIGH).changesOnly();
+    rejectedEntry = Telemetry.doubleEntry("Vision/" + name + "/Rejected", Verbosity.HIGH).changesOnly();
+    residualEntry = Telemetry.doubleArrayEntry("Vision/" + name + "/Residual", Verbosity.HIGH, 3);
+  }
+
+  /**
+   * Decide whether a measurement should be fused.
+   *
+   * @param odometry         Odometry pose at the capture timestamp as {x, y, theta}, see
+   *                         {@link PoseHistory#sample(double, double[])}.
+   * @param measured         Pose solved from the camera frame.
+   * @param stdDevs          Standard deviations of the measurement.
+   * @param timestampSeconds Capture timestamp of the frame.
+   * @param tagCount         Number of field tags the measurement was solved from.
+   * @param ambiguity        Worst pose ambiguity of those tags, 0 if none was reported.
+   * @return true if the measurement should be fused.
+   */
+  public boolean test(double[] odometry, Pose2d measured, Matrix<N3, N1> stdDevs, double timestampSeconds,
+      int tagCount, double ambiguity) {
+    if (!Double.isNaN(lastOdometryX)) {
+      drivenSinceFix += Math.hypot(odometry[0] - lastOdometryX, odometry[1] - lastOdometryY);
+    }
+    lastOdometryX = odometry[0];
+    lastOdometryY = odometry[1];
+
+    if (!isTrusted(stdDevs)) {
+      return reject();
+    }
+
+    double dx = measured.getX() - odometry[0];
+    double dy = measured.getY() - odometry[1];
+    double dtheta = MathUtil.angleModulus(measured.getRotation().getRadians() - odometry[2]);
+    residualEntry.set(0, dx).set(1, dy).set(2, Math.toDegrees(dtheta)).publish();
+
+    double translationDrift = square(Constants.Vision.kOdometryDriftPerMeter * drivenSinceFix);
+    double headingDrift = square(Constants.Vision.kOdometryHeadingDriftPerMeter * drivenSinceFix);
+    double distance = dx * dx / (odometryVariance[0] + translationDrift + square(stdDevs.get(0, 0)))
+        + dy * dy / (odometryVariance[1] + translationDrift + square(stdDevs.get(1, 0)))
+        + dtheta * dtheta / (odometryVariance[2] + headingDrift + square(stdDevs.get(2, 0)));
+
+    if (distance <= Constants.Vision.kGateChiSquared) {
+      windowCount = 0;
+      return accept();
+    }
+
+    // Only measurements good enough to override odometry count towards a run of them
+    if (tagCount < Constants.Vision.kGateOverrideMinTags || ambiguity > Constants.Vision.kGateOverrideMaxAmbiguity) {
+      windowCount = 0;
+      return reject();
+    }
+    // An old rejection does not count towards a new run of them
+    if (timestampSeconds - lastRejectedTimestamp > Constants.Vision.kGateWindowSeconds) {
+      windowCount = 0;
+    }
+    lastRejectedTimestamp = timestampSeconds;
+    windowX[windowCount % kWindow] = measured.getX();
+    windowY[windowCount % kWindow] = measured.getY();
+    windowCount++;
+
+    if (windowCount >= kWindow && windowIsConsistent()) {
+      windowCount = 0;
+      return accept();
+    }
+    return reject();
+  }
+
+  /**
+   * @return true if every standard deviation is finite once squared, so the measurement can move the pose at all.
+   */
+  public static boolean isTrusted(Matrix<N3, N1> stdDevs) {
+    for (int i = 0; i < 3; i++) {
+      if (!Double.isFinite(square(stdDevs.get(i, 0)))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return Number of measurements this gate has accepted.
+   */
+  public long getAccepted() {
+    return accepted;
+  }
+
+  /**
+   * @return Number of measurements this gate has rejected.
+   */
+  public long getRejected() {
+    return rejected;
+  }
+
+  private boolean accept() {
+    drivenSinceFix = 0;
+    accepted++;
+    acceptedEntry.set(accepted);
+    return true;
+  }
+
+  private boolean reject() {
+    rejected++;
+    rejectedEntry.set(rejected);
+    return false;
+  }
+
+  /**
+   * @return true if every rejected measurement in the window is close to their mean.
+   */
+  private boolean windowIsConsistent() {
+    double meanX = 0;
+    double meanY = 0;
+    for (int i = 0; i < kWindow; i++) {
+      meanX += windowX[i];
+      meanY += windowY[i];
+    }
+    meanX /= kWindow;
+    meanY /= kWindow;
+
+    double limit = square(Constants.Vision.kGateConsistencyDistance);
+    for (int i = 0; i < kWindow; i++) {
+      if (square(windowX[i] - meanX) + square(windowY[i] - meanY) > limit) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static double square(double value) {
+    return value * value;
+  }
+}
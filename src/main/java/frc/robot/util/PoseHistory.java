@@ -0,0 +1,116 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * Fixed-size history of timestamped odometry poses, for looking up where the robot thought it was when a late
+ * measurement (like a camera frame) was captured.
+ *
+ * <p>
+ * Samples are stored in primitive ring buffers, so recording a pose does not allocate. Lookups binary search the
+ * timestamps and interpolate between the two samples around the requested time. Recording and lookups may happen on
+ * different threads.
+ */
+public final class PoseHistory {
+
+  private final double[] timestamps;
+  private final double[] x;
+  private final double[] y;
+  private final double[] theta;
+  private int head = 0;
+  private int size = 0;
+
+  /**
+   * @param capacity Number of samples to keep, the oldest are overwritten first.
+   */
+  public PoseHistory(int capacity) {
+    timestamps = new double[capacity];
+    x = new double[capacity];
+    y = new double[capacity];
+    theta = new double[capacity];
+  }
+
+  /**
+   * Record a pose. Timestamps must be increasing, a sample that is not newer than the last one is ignored.
+   *
+   * @param timestampSeconds FPGA timestamp of the pose.
+   * @param pose             Odometry pose.
+   */
+  public synchronized void add(double timestampSeconds, Pose2d pose) {
+    if (size > 0 && timestampSeconds <= timestamps[index(size - 1)]) {
+      return;
+    }
+    timestamps[head] = timestampSeconds;
+    x[head] = pose.getX();
+    y[head] = pose.getY();
+    theta[head] = pose.getRotation().getRadians();
+    head = (head + 1) % timestamps.length;
+    if (size < timestamps.length) {
+      size++;
+    }
+  }
+
+  /**
+   * Interpolate the pose at a timestamp. Timestamps outside the history are clamped to the oldest or newest sample.
+   *
+   * @param timestampSeconds FPGA timestamp to look up.
+   * @param out              Array of at least 3 that receives {x, y, theta} in meters and radians.
+   * @return false if the history is empty and {@code out} was not written.
+   */
+  public synchronized boolean sample(double timestampSeconds, double[] out) {
+    if (size == 0) {
+      return false;
+    }
+    if (timestampSeconds <= timestamps[index(0)]) {
+      copy(index(0), out);
+      return true;
+    }
+    if (timestampSeconds >= timestamps[index(size - 1)]) {
+      copy(index(size - 1), out);
+      return true;
+    }
+
+    // Find the first sample at or after the timestamp, the one before it is at or before
+    int low = 0;
+    int high = size - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (timestamps[index(mid)] < timestampSeconds) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    int after = index(low);
+    int before = index(low - 1);
+
+    double t = (timestampSeconds - timestamps[before]) / (timestamps[after] - timestamps[before]);
+    out[0] = MathUtil.interpolate(x[before], x[after], t);
+    out[1] = MathUtil.interpolate(y[before], y[after], t);
+    out[2] = theta[before] + MathUtil.angleModulus(theta[after] - theta[before]) * t;
+    return true;
+  }
+
+  /**
+   * Forget every sample, for example after the odometry has been reset.
+   */
+  public synchronized void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  /**
+   * @param i Age index, 0 is the oldest sample.
+   * @return Index into the ring buffers.
+   */
+  private int index(int i) {
+    return (head - size + i + timestamps.length) % timestamps.length;
+  }
+
+  private void copy(int i, double[] out) {
+    out[0] = x[i];
+    out[1] = y[i];
+    out[2] = theta[i];
+  }
+}
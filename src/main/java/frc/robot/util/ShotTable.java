@@ -0,0 +1,189 @@
+package frc.robot.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.networktables.StringSubscriber;
+import edu.wpi.first.networktables.StringTopic;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Distance indexed speaker shot table: arm setpoint and left/right flywheel RPM, linearly interpolated between tuned
+ * points.
+ *
+ * <p>
+ * The table is loaded from {@link Constants.Shooter#kShotTableFile} in the deploy directory, falling back to
+ * {@link Constants.Shooter.AimPresets} if the file is missing or invalid. The JSON looks like
+ * {@code {"points": [{"distance": 1.35, "arm": 0.045, "leftRpm": 5000, "rightRpm": 3000}, ...]}} with distances in
+ * meters, strictly increasing.
+ *
+ * <p>
+ * The loaded JSON is published to {@code ShotTable/json}. Editing that value from a dashboard replaces the table on
+ * the next {@link #lookup(double, double[])}, so it can be tuned on the practice field without a redeploy. Copy the
+ * tuned JSON back into the deploy file to keep it. An invalid edit is reported and the current table is kept.
+ *
+ * <p>
+ * Lookups binary search the distances and do no allocation. Only meant to be used from the main robot thread.
+ */
+public final class ShotTable {
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private double[] distances;
+  private double[] arm;
+  private double[] leftRpm;
+  private double[] rightRpm;
+
+  private final StringPublisher jsonPublisher;
+  private final StringSubscriber jsonSubscriber;
+  private long lastChange;
+
+  public ShotTable() {
+    if (!load(readDeployFile())) {
+      loadDefaults();
+    }
+
+    NetworkTable table = NetworkTableInstance.getDefault().getTable("ShotTable");
+    StringTopic topic = table.getStringTopic("json");
+    jsonPublisher = topic.publish();
+    jsonSubscriber = topic.subscribe("");
+    jsonPublisher.set(toJson());
+    lastChange = jsonSubscriber.getLastChange();
+  }
+
+  /**
+   * Look up the shot for a distance. Distances outside the table are clamped to its ends.
+   *
+   * @param distance Distance to the speaker in meters.
+   * @param out      Array of at least 3 that receives {arm position, left RPM, right RPM}.
+   */
+  public void lookup(double distance, double[] out) {
+    checkForReload();
+
+    int last = distances.length - 1;
+    if (distance <= distances[0]) {
+      copy(0, out);
+      return;
+    }
+    if (distance >= distances[last]) {
+      copy(last, out);
+      return;
+    }
+
+    // First point at or past the distance
+    int low = 1;
+    int high = last;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (distances[mid] < distance) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    double t = (distance - distances[low - 1]) / (distances[low] - distances[low - 1]);
+    out[0] = arm[low - 1] + (arm[low] - arm[low - 1]) * t;
+    out[1] = leftRpm[low - 1] + (leftRpm[low] - leftRpm[low - 1]) * t;
+    out[2] = rightRpm[low - 1] + (rightRpm[low] - rightRpm[low - 1]) * t;
+  }
+
+  private void copy(int i, double[] out) {
+    out[0] = arm[i];
+    out[1] = leftRpm[i];
+    out[2] = rightRpm[i];
+  }
+
+  private void checkForReload() {
+    long change = jsonSubscriber.getLastChange();
+    if (change == lastChange) {
+      return;
+    }
+    lastChange = change;
+    if (!load(jsonSubscriber.get())) {
+      DriverStation.reportWarning("ShotTable: ignoring invalid table from NetworkTables", false);
+    }
+  }
+
+  private static String readDeployFile() {
+    File file = new File(Filesystem.getDeployDirectory(), Constants.Shooter.kShotTableFile);
+    try {
+      return Files.readString(file.toPath());
+    } catch (IOException e) {
+      DriverStation.reportWarning("ShotTable: could not read " + file + ", using presets", false);
+      return "";
+    }
+  }
+
+  /**
+   * Parse and swap in a table. Leaves the current table alone if the JSON is invalid.
+   *
+   * @return true if the table was replaced.
+   */
+  private boolean load(String json) {
+    if (json == null || json.isEmpty()) {
+      return false;
+    }
+    try {
+      JsonNode points = mapper.readTree(json).path("points");
+      int count = points.size();
+      if (!points.isArray() || count < 1) {
+        return false;
+      }
+      double[] newDistances = new double[count];
+      double[] newArm = new double[count];
+      double[] newLeft = new double[count];
+      double[] newRight = new double[count];
+      for (int i = 0; i < count; i++) {
+        JsonNode point = points.get(i);
+        if (!point.path("distance").isNumber() || !point.path("arm").isNumber()
+            || !point.path("leftRpm").isNumber() || !point.path("rightRpm").isNumber()) {
+          return false;
+        }
+        newDistances[i] = point.get("distance").asDouble();
+        newArm[i] = point.get("arm").asDouble();
+        newLeft[i] = point.get("leftRpm").asDouble();
+        newRight[i] = point.get("rightRpm").asDouble();
+        if (i > 0 && newDistances[i] <= newDistances[i - 1]) {
+          return false;
+        }
+      }
+      distances = newDistances;
+      arm = newArm;
+      leftRpm = newLeft;
+      rightRpm = newRight;
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private void loadDefaults() {
+    distances = Constants.Shooter.AimPresets.kDistances.clone();
+    arm = Constants.Shooter.AimPresets.kArmPositions.clone();
+    leftRpm = new double[distances.length];
+    rightRpm = new double[distances.length];
+    Arrays.fill(leftRpm, Constants.Shooter.Presets.kLeftSpeaker);
+    Arrays.fill(rightRpm, Constants.Shooter.Presets.kRightSpeaker);
+  }
+
+  private String toJson() {
+    var root = mapper.createObjectNode();
+    var points = root.putArray("points");
+    for (int i = 0; i < distances.length; i++) {
+      points.addObject()
+          .put("distance", distances[i])
+          .put("arm", arm[i])
+          .put("leftRpm", leftRpm[i])
+          .put("rightRpm", rightRpm[i]);
+    }
+    return root.toString();
+  }
+}
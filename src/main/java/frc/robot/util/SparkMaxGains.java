@@ -0,0 +1,35 @@
+package frc.robot.util;
+
+import com.revrobotics.SparkPIDController;
+
+/**
+ * Converts PID gains tuned on the roboRIO, in volts, to the units a SPARK MAX closed loop uses.
+ *
+ * <p>
+ * The SPARK MAX outputs a duty cycle, so with voltage compensation on every gain is divided by the compensation
+ * voltage. Its loop also runs every 1 ms and sums I and differences D per loop rather than per second, so I is divided
+ * by, and D multiplied by, the loops per second.
+ */
+public final class SparkMaxGains {
+
+  private static final double kLoopsPerSecond = 1000;
+
+  private SparkMaxGains() {
+  }
+
+  /**
+   * Set a controller's P, I and D from roboRIO gains. The motor must have voltage compensation enabled at
+   * {@code compensationVoltage}.
+   *
+   * @param kP                  Volts per unit of error.
+   * @param kI                  Volts per unit of error times seconds.
+   * @param kD                  Volts per unit of error per second.
+   * @param compensationVoltage Voltage the motor's voltage compensation is set to.
+   */
+  public static void apply(SparkPIDController controller, double kP, double kI, double kD,
+      double compensationVoltage) {
+    controller.setP(kP / compensationVoltage);
+    controller.setI(kI / compensationVoltage / kLoopsPerSecond);
+    controller.setD(kD / compensationVoltage * kLoopsPerSecond);
+  }
+}
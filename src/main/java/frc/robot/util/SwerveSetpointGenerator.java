@@ -0,0 +1,221 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.Constants;
+
+/**
+ * Limits how fast the commanded chassis speeds may change so that no module is asked for more than it can do.
+ *
+ * <p>
+ * Every loop the new setpoint is picked on the straight line from the previous setpoint to the desired speeds, as far
+ * along it as every limit allows:
+ * <ul>
+ * <li>No module's velocity vector changes by more than the module acceleration or the wheel friction
+ * ({@link Constants.Drivebase#kMaxModuleAcceleration}, {@link Constants.Drivebase#kWheelCoefficientOfFriction}) allow.
+ * A change beyond the friction limit is the wheel skidding.</li>
+ * <li>The chassis does not accelerate hard enough to tip over its wheelbase, from the center of mass height in
+ * {@link Constants#CHASSIS}.</li>
+ * <li>No moving module has to steer faster than {@link Constants.Drivebase#kMaxSteerVelocity}. A module may reverse
+ * its wheel instead of turning more than 90 degrees.</li>
+ * </ul>
+ * Module velocities are linear along the line, so the first two limits are solved directly. Steering is found by
+ * bisection. The setpoint and module velocities are kept in primitive arrays that are reused every loop.
+ */
+public final class SwerveSetpointGenerator {
+
+  private static final double kEpsilon = 1e-6;
+  private static final int kSteerIterations = 8;
+  private static final double kGravity = 9.81;
+
+  private final double[] moduleX;
+  private final double[] moduleY;
+  private final double maxModuleSpeed;
+  private final double maxTranslationAcceleration;
+
+  // Previous setpoint, robot relative
+  private double vx, vy, omega;
+  private final double[] moduleVx;
+  private final double[] moduleVy;
+  private final double[] moduleAngle;
+
+  // Desired module velocities, reused every loop
+  private final double[] desiredVx;
+  private final double[] desiredVy;
+
+  private double lastScale = 1;
+
+  /**
+   * @param moduleLocations Module positions from the center of the robot, in meters.
+   * @param maxModuleSpeed  Fastest a module can drive, in meters per second.
+   */
+  public SwerveSetpointGenerator(Translation2d[] moduleLocations, double maxModuleSpeed) {
+    int modules = moduleLocations.length;
+    moduleX = new double[modules];
+    moduleY = new double[modules];
+    moduleVx = new double[modules];
+    moduleVy = new double[modules];
+    moduleAngle = new double[modules];
+    desiredVx = new double[modules];
+    desiredVy = new double[modules];
+    this.maxModuleSpeed = maxModuleSpeed;
+
+    // The robot tips when the acceleration tips the weight past the nearest wheel
+    double halfBase = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < modules; i++) {
+      moduleX[i] = moduleLocations[i].getX();
+      moduleY[i] = moduleLocations[i].getY();
+      halfBase = Math.min(halfBase, Math.min(Math.abs(moduleX[i]), Math.abs(moduleY[i])));
+    }
+    double centerOfMassHeight = Constants.CHASSIS.position.getZ();
+    double tipAcceleration = centerOfMassHeight > 0 ? kGravity * halfBase / centerOfMassHeight
+        : Double.POSITIVE_INFINITY;
+    maxTranslationAcceleration = tipAcceleration;
+  }
+
+  /**
+   * Start from the robot's measured velocity, for when something else has been driving.
+   *
+   * @param robotVx    Measured robot relative x velocity.
+   * @param robotVy    Measured robot relative y velocity.
+   * @param robotOmega Measured angular velocity.
+   */
+  public void reset(double robotVx, double robotVy, double robotOmega) {
+    vx = robotVx;
+    vy = robotVy;
+    omega = robotOmega;
+    for (int i = 0; i < moduleX.length; i++) {
+      moduleVx[i] = vx - omega * moduleY[i];
+      moduleVy[i] = vy + omega * moduleX[i];
+      if (Math.hypot(moduleVx[i], moduleVy[i]) > kEpsilon) {
+        moduleAngle[i] = Math.atan2(moduleVy[i], moduleVx[i]);
+      }
+    }
+    lastScale = 1;
+  }
+
+  /**
+   * Move the setpoint towards the desired robot relative speeds. Read the result with {@link #getVx()},
+   * {@link #getVy()} and {@link #getOmega()}.
+   *
+   * @param desiredVx    Desired robot relative x velocity in meters per second.
+   * @param desiredVy    Desired robot relative y velocity in meters per second.
+   * @param desiredOmega Desired angular velocity in radians per second.
+   * @param dt           Time since the last setpoint in seconds.
+   */
+  public void update(double desiredVx, double desiredVy, double desiredOmega, double dt) {
+    int modules = moduleX.length;
+
+    // Scale the whole request down if any module would have to go faster than it can
+    double fastest = 0;
+    for (int i = 0; i < modules; i++) {
+      this.desiredVx[i] = desiredVx - desiredOmega * moduleY[i];
+      this.desiredVy[i] = desiredVy + desiredOmega * moduleX[i];
+      fastest = Math.max(fastest, Math.hypot(this.desiredVx[i], this.desiredVy[i]));
+    }
+    if (fastest > maxModuleSpeed) {
+      double desaturate = maxModuleSpeed / fastest;
+      desiredVx *= desaturate;
+      desiredVy *= desaturate;
+      desiredOmega *= desaturate;
+      for (int i = 0; i < modules; i++) {
+        this.desiredVx[i] *= desaturate;
+        this.desiredVy[i] *= desaturate;
+      }
+    }
+
+    double maxModuleDelta = Math.min(Constants.Drivebase.kMaxModuleAcceleration,
+        Constants.Drivebase.kWheelCoefficientOfFriction * kGravity) * dt;
+    double maxSteer = Constants.Drivebase.kMaxSteerVelocity * dt;
+
+    double s = 1;
+    double translationDelta = Math.hypot(desiredVx - vx, desiredVy - vy);
+    if (translationDelta > kEpsilon) {
+      s = Math.min(s, maxTranslationAcceleration * dt / translationDelta);
+    }
+    for (int i = 0; i < modules; i++) {
+      double moduleDelta = Math.hypot(this.desiredVx[i] - moduleVx[i], this.desiredVy[i] - moduleVy[i]);
+      if (moduleDelta > kEpsilon) {
+        s = Math.min(s, maxModuleDelta / moduleDelta);
+      }
+    }
+    for (int i = 0; i < modules; i++) {
+      s = steeringLimit(i, s, maxSteer);
+    }
+
+    vx += (desiredVx - vx) * s;
+    vy += (desiredVy - vy) * s;
+    omega += (desiredOmega - omega) * s;
+    for (int i = 0; i < modules; i++) {
+      moduleVx[i] += (this.desiredVx[i] - moduleVx[i]) * s;
+      moduleVy[i] += (this.desiredVy[i] - moduleVy[i]) * s;
+      if (Math.hypot(moduleVx[i], moduleVy[i]) > kEpsilon) {
+        moduleAngle[i] = Math.atan2(moduleVy[i], moduleVx[i]);
+      }
+    }
+    lastScale = s;
+  }
+
+  /**
+   * @return The largest fraction up to {@code s} that module {@code i} can steer to within {@code maxSteer}.
+   */
+  private double steeringLimit(int i, double s, double maxSteer) {
+    // A stopped module can be pointed anywhere before it starts moving
+    if (Math.hypot(moduleVx[i], moduleVy[i]) < kEpsilon || steerError(i, s) <= maxSteer) {
+      return s;
+    }
+    double low = 0;
+    double high = s;
+    for (int iteration = 0; iteration < kSteerIterations; iteration++) {
+      double mid = (low + high) / 2;
+      if (steerError(i, mid) <= maxSteer) {
+        low = mid;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return How far module {@code i} has to steer to reach fraction {@code s} of the way to its desired velocity,
+   *         allowing for reversing the wheel.
+   */
+  private double steerError(int i, double s) {
+    double x = moduleVx[i] + (desiredVx[i] - moduleVx[i]) * s;
+    double y = moduleVy[i] + (desiredVy[i] - moduleVy[i]) * s;
+    if (Math.hypot(x, y) < kEpsilon) {
+      return 0;
+    }
+    double error = Math.abs(MathUtil.angleModulus(Math.atan2(y, x) - moduleAngle[i]));
+    return Math.min(error, Math.PI - error);
+  }
+
+  /**
+   * @return Robot relative x velocity of the setpoint in meters per second.
+   */
+  public double getVx() {
+    return vx;
+  }
+
+  /**
+   * @return Robot relative y velocity of the setpoint in meters per second.
+   */
+  public double getVy() {
+    return vy;
+  }
+
+  /**
+   * @return Angular velocity of the setpoint in radians per second.
+   */
+  public double getOmega() {
+    return omega;
+  }
+
+  /**
+   * @return How far towards the desired speeds the last update got, 1 if it was not limited.
+   */
+  public double getLastScale() {
+    return lastScale;
+  }
+}
@@ -0,0 +1,196 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.Constants;
+
+/**
+ * Allocation-free replacement for calling {@code SmartDashboard.putNumber}/{@code putBoolean} every loop.
+ *
+ * <p>
+ * Entries are created once, at construction time, and hold a typed NetworkTables publisher for their key. Updating an
+ * entry is a field compare and, when it actually publishes, a single JNI call: no string lookups and no garbage. Keys
+ * live in the {@code SmartDashboard} table so existing dashboard layouts keep working.
+ *
+ * <p>
+ * Every entry has a {@link Verbosity} and is skipped entirely while {@link #verbosity} is below it. Entries can also be
+ * rate limited with {@code withPeriod} and/or only published when their value changes with {@code changesOnly}.
+ */
+public final class Telemetry {
+
+  /**
+   * How much gets published. An entry is published when its level is at or below the current verbosity.
+   */
+  public enum Verbosity {
+    /**
+     * Nothing is published.
+     */
+    NONE,
+    /**
+     * Only values the drive team needs during a match.
+     */
+    LOW,
+    /**
+     * Everything, including debug and tuning values.
+     */
+    HIGH
+  }
+
+  /**
+   * Current verbosity, may be changed at any time.
+   */
+  public static Verbosity verbosity = Constants.TelemetryConstants.kVerbosity;
+
+  private static final NetworkTable table = NetworkTableInstance.getDefault().getTable("SmartDashboard");
+
+  private Telemetry() {
+  }
+
+  public static DoubleEntry doubleEntry(String key, Verbosity level) {
+    return new DoubleEntry(table.getDoubleTopic(key).publish(), level);
+  }
+
+  public static BooleanEntry booleanEntry(String key, Verbosity level) {
+    return new BooleanEntry(table.getBooleanTopic(key).publish(), level);
+  }
+
+  public static DoubleArrayEntry doubleArrayEntry(String key, Verbosity level, int length) {
+    return new DoubleArrayEntry(table.getDoubleArrayTopic(key).publish(), level, length);
+  }
+
+  /**
+   * Shared gating for every entry type: verbosity, rate limit and change detection.
+   */
+  private abstract static class Entry<T extends Entry<T>> {
+    private final Verbosity level;
+    private long periodNanos = 0;
+    private long lastPublishNanos = 0;
+    protected boolean changesOnly = false;
+    protected boolean hasPublished = false;
+
+    private Entry(Verbosity level) {
+      this.level = level;
+    }
+
+    /**
+     * Publish at most once every {@code seconds}.
+     */
+    @SuppressWarnings("unchecked")
+    public T withPeriod(double seconds) {
+      periodNanos = (long) (seconds * 1e9);
+      return (T) this;
+    }
+
+    /**
+     * Only publish when the value differs from the last published value.
+     */
+    @SuppressWarnings("unchecked")
+    public T changesOnly() {
+      changesOnly = true;
+      return (T) this;
+    }
+
+    /**
+     * @return true if this entry may publish now, false if verbosity or the rate limit hold it back.
+     */
+    protected boolean ready() {
+      if (level.ordinal() > verbosity.ordinal() || level == Verbosity.NONE) {
+        return false;
+      }
+      if (periodNanos > 0 && hasPublished && System.nanoTime() - lastPublishNanos < periodNanos) {
+        return false;
+      }
+      return true;
+    }
+
+    protected void published() {
+      hasPublished = true;
+      if (periodNanos > 0) {
+        lastPublishNanos = System.nanoTime();
+      }
+    }
+  }
+
+  public static final class DoubleEntry extends Entry<DoubleEntry> {
+    private final DoublePublisher publisher;
+    private double lastValue;
+
+    private DoubleEntry(DoublePublisher publisher, Verbosity level) {
+      super(level);
+      this.publisher = publisher;
+    }
+
+    public void set(double value) {
+      if (changesOnly && hasPublished && value == lastValue) {
+        return;
+      }
+      if (!ready()) {
+        return;
+      }
+      publisher.set(value);
+      lastValue = value;
+      published();
+    }
+  }
+
+  public static final class BooleanEntry extends Entry<BooleanEntry> {
+    private final BooleanPublisher publisher;
+    private boolean lastValue;
+
+    private BooleanEntry(BooleanPublisher publisher, Verbosity level) {
+      super(level);
+      this.publisher = publisher;
+    }
+
+    public void set(boolean value) {
+      if (changesOnly && hasPublished && value == lastValue) {
+        return;
+      }
+      if (!ready()) {
+        return;
+      }
+      publisher.set(value);
+      lastValue = value;
+      published();
+    }
+  }
+
+  /**
+   * Fixed-length double array entry. Write the values with {@link #set(int, double)} and publish them with
+   * {@link #publish()}; the backing array is reused.
+   */
+  public static final class DoubleArrayEntry extends Entry<DoubleArrayEntry> {
+    private final DoubleArrayPublisher publisher;
+    private final double[] values;
+    private boolean dirty = true;
+
+    private DoubleArrayEntry(DoubleArrayPublisher publisher, Verbosity level, int length) {
+      super(level);
+      this.publisher = publisher;
+      this.values = new double[length];
+    }
+
+    public DoubleArrayEntry set(int index, double value) {
+      if (values[index] != value) {
+        values[index] = value;
+        dirty = true;
+      }
+      return this;
+    }
+
+    public void publish() {
+      if (changesOnly && hasPublished && !dirty) {
+        return;
+      }
+      if (!ready()) {
+        return;
+      }
+      publisher.set(values);
+      dirty = false;
+      published();
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.LimelightHelpers.RawDetections;
+import frc.robot.LimelightHelpers.RawFiducials;
+
+class LimelightRawDecodeTest {
+
+  private static final double kDelta = 1e-9;
+
+  /**
+   * @return {@code count} fiducials, the values of tag {@code i} counting up from {@code 10 * i}.
+   */
+  private static double[] fiducials(int count) {
+    double[] data = new double[count * LimelightHelpers.kValsPerRawFiducial];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (i / LimelightHelpers.kValsPerRawFiducial) * 10 + i % LimelightHelpers.kValsPerRawFiducial;
+    }
+    return data;
+  }
+
+  /**
+   * @return {@code count} detections, the values of detection {@code i} counting up from {@code 100 * i}.
+   */
+  private static double[] detections(int count) {
+    double[] data = new double[count * LimelightHelpers.kValsPerRawDetection];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (i / LimelightHelpers.kValsPerRawDetection) * 100 + i % LimelightHelpers.kValsPerRawDetection;
+    }
+    return data;
+  }
+
+  @Test
+  void decodesEveryFiducialField() {
+    RawFiducials view = new RawFiducials(4);
+    view.decode(fiducials(2));
+
+    assertEquals(2, view.size());
+    assertEquals(10, view.id(1));
+    assertEquals(11, view.txnc(1), kDelta);
+    assertEquals(12, view.tync(1), kDelta);
+    assertEquals(13, view.ta(1), kDelta);
+    assertEquals(14, view.distToCamera(1), kDelta);
+    assertEquals(15, view.distToRobot(1), kDelta);
+    assertEquals(16, view.ambiguity(1), kDelta);
+  }
+
+  @Test
+  void raggedFiducialArrayDecodesToNone() {
+    RawFiducials view = new RawFiducials(4);
+    view.decode(fiducials(2));
+    double[] ragged = new double[LimelightHelpers.kValsPerRawFiducial + 3];
+    view.decode(ragged);
+
+    assertEquals(0, view.size());
+  }
+
+  @Test
+  void fiducialsBeyondCapacityAreDropped() {
+    RawFiducials view = new RawFiducials(2);
+    view.decode(fiducials(5));
+
+    assertEquals(2, view.size());
+    assertEquals(0, view.id(0));
+    assertEquals(10, view.id(1));
+  }
+
+  @Test
+  void detectionsUseTwelveValueStride() {
+    assertEquals(12, LimelightHelpers.kValsPerRawDetection);
+
+    RawDetections view = new RawDetections(4);
+    view.decode(detections(2));
+
+    assertEquals(2, view.size());
+    assertEquals(100, view.classId(1));
+    assertEquals(101, view.txnc(1), kDelta);
+    assertEquals(102, view.tync(1), kDelta);
+    assertEquals(103, view.ta(1), kDelta);
+    for (int corner = 0; corner < 4; corner++) {
+      assertEquals(104 + corner * 2, view.cornerX(1, corner), kDelta);
+      assertEquals(105 + corner * 2, view.cornerY(1, corner), kDelta);
+    }
+  }
+
+  @Test
+  void elevenValueDetectionArrayIsRagged() {
+    RawDetections view = new RawDetections(4);
+    view.decode(new double[11 * 2]);
+
+    assertEquals(0, view.size());
+  }
+
+  @Test
+  void detectionsBeyondCapacityAreDropped() {
+    RawDetections view = new RawDetections(1);
+    view.decode(detections(3));
+
+    assertEquals(1, view.size());
+    assertEquals(0, view.classId(0));
+    assertEquals(11, view.cornerY(0, 3), kDelta);
+  }
+}
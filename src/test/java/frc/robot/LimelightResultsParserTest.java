@@ -0,0 +1,154 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import frc.robot.LimelightHelpers.LimelightResults;
+import frc.robot.LimelightHelpers.LimelightResultsBuffer;
+import frc.robot.LimelightHelpers.ResultField;
+
+/**
+ * Checks the streaming parser against the ObjectMapper one. The fixtures under {@code /limelight} are synthetic,
+ * written by hand in the shape of a Limelight results dump, not captured from a camera.
+ */
+class LimelightResultsParserTest {
+
+  private static final double kDelta = 1e-9;
+  private static final double[] kZeros = new double[6];
+
+  private static String fixture(String name) throws IOException {
+    try (InputStream in = LimelightResultsParserTest.class.getResourceAsStream("/limelight/" + name)) {
+      assertNotNull(in, name);
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static LimelightResults bind(String json) throws IOException {
+    return new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+        .readValue(json, LimelightResults.class);
+  }
+
+  private static LimelightResultsBuffer everything(int fiducialCapacity) {
+    return new LimelightResultsBuffer(fiducialCapacity, ResultField.TIMING, ResultField.BOTPOSE,
+        ResultField.FIDUCIALS);
+  }
+
+  @Test
+  void matchesObjectMapper() throws IOException {
+    String json = fixture("results_two_tags.json");
+    LimelightResults expected = bind(json);
+    LimelightResultsBuffer actual = everything(8);
+
+    assertTrue(LimelightHelpers.parseResults(json, actual));
+
+    assertEquals(expected.pipelineID, actual.pipelineID, kDelta);
+    assertEquals(expected.valid, actual.valid);
+    assertEquals(expected.latency_pipeline, actual.latency_pipeline, kDelta);
+    assertEquals(expected.latency_capture, actual.latency_capture, kDelta);
+    assertEquals(expected.timestamp_LIMELIGHT_publish, actual.timestamp_LIMELIGHT_publish, kDelta);
+    assertEquals(expected.timestamp_RIOFPGA_capture, actual.timestamp_RIOFPGA_capture, kDelta);
+
+    assertArrayEquals(expected.botpose, actual.botpose, kDelta);
+    assertArrayEquals(expected.botpose_wpired, actual.botpose_wpired, kDelta);
+    assertArrayEquals(expected.botpose_wpiblue, actual.botpose_wpiblue, kDelta);
+    assertEquals(expected.botpose_tagcount, actual.botpose_tagcount, kDelta);
+    assertEquals(expected.botpose_span, actual.botpose_span, kDelta);
+    assertEquals(expected.botpose_avgdist, actual.botpose_avgdist, kDelta);
+    assertEquals(expected.botpose_avgarea, actual.botpose_avgarea, kDelta);
+
+    assertEquals(expected.targets_Fiducials.length, actual.fiducialCount);
+    for (int i = 0; i < actual.fiducialCount; i++) {
+      var fiducial = expected.targets_Fiducials[i];
+      assertEquals((int) fiducial.fiducialID, actual.fiducialID[i]);
+      assertEquals(fiducial.tx, actual.fiducialTx[i], kDelta);
+      assertEquals(fiducial.ty, actual.fiducialTy[i], kDelta);
+      assertEquals(fiducial.ta, actual.fiducialTa[i], kDelta);
+
+      Pose3d pose = fiducial.getRobotPose_FieldSpace();
+      assertEquals(pose.getX(), actual.fiducialRobotPose_FieldSpace[i * 6], kDelta);
+      assertEquals(pose.getY(), actual.fiducialRobotPose_FieldSpace[i * 6 + 1], kDelta);
+      assertEquals(pose.getZ(), actual.fiducialRobotPose_FieldSpace[i * 6 + 2], kDelta);
+    }
+  }
+
+  @Test
+  void unrequestedGroupsStayUntouched() throws IOException {
+    LimelightResultsBuffer actual = new LimelightResultsBuffer(8, ResultField.FIDUCIALS);
+
+    assertTrue(LimelightHelpers.parseResults(fixture("results_two_tags.json"), actual));
+
+    assertEquals(2, actual.fiducialCount);
+    assertEquals(0, actual.latency_pipeline);
+    assertEquals(0, actual.latency_capture);
+    assertEquals(0, actual.timestamp_LIMELIGHT_publish);
+    assertEquals(0, actual.timestamp_RIOFPGA_capture);
+    assertArrayEquals(kZeros, actual.botpose);
+    assertArrayEquals(kZeros, actual.botpose_wpired);
+    assertArrayEquals(kZeros, actual.botpose_wpiblue);
+    assertEquals(0, actual.botpose_tagcount);
+    assertEquals(0, actual.botpose_avgdist);
+  }
+
+  @Test
+  void fiducialsAreSkippedUnlessRequested() throws IOException {
+    LimelightResultsBuffer actual = new LimelightResultsBuffer(8, ResultField.BOTPOSE);
+
+    assertTrue(LimelightHelpers.parseResults(fixture("results_two_tags.json"), actual));
+
+    assertEquals(0, actual.fiducialCount);
+    assertEquals(0, actual.fiducialID[0]);
+    assertArrayEquals(new double[8 * 6], actual.fiducialRobotPose_FieldSpace);
+    assertEquals(2, actual.botpose_tagcount, kDelta);
+  }
+
+  @Test
+  void missingKeysDoNotKeepThePreviousFrame() throws IOException {
+    LimelightResultsBuffer actual = everything(8);
+    assertTrue(LimelightHelpers.parseResults(fixture("results_two_tags.json"), actual));
+
+    assertTrue(LimelightHelpers.parseResults(fixture("results_no_botpose.json"), actual));
+
+    assertArrayEquals(kZeros, actual.botpose);
+    assertArrayEquals(kZeros, actual.botpose_wpired);
+    assertArrayEquals(kZeros, actual.botpose_wpiblue);
+    assertEquals(0, actual.botpose_tagcount);
+    assertEquals(1, actual.fiducialCount);
+    assertEquals(4, actual.fiducialID[0]);
+    assertArrayEquals(new double[8 * 6], actual.fiducialRobotPose_FieldSpace);
+  }
+
+  @Test
+  void fiducialsBeyondCapacityAreSkipped() throws IOException {
+    LimelightResultsBuffer actual = everything(1);
+
+    assertTrue(LimelightHelpers.parseResults(fixture("results_two_tags.json"), actual));
+
+    assertEquals(1, actual.fiducialCount);
+    assertEquals(7, actual.fiducialID[0]);
+    // The rest of the fixture is still read after the skipped fiducial
+    assertEquals(2, actual.botpose_tagcount, kDelta);
+  }
+
+  @Test
+  void malformedDumpReportsAnError() {
+    LimelightResultsBuffer actual = everything(8);
+
+    assertFalse(LimelightHelpers.parseResults("{\"pID\": 0, \"Fiducial\": [", actual));
+    assertNotNull(actual.error);
+    assertFalse(LimelightHelpers.parseResults("", actual));
+    assertNotNull(actual.error);
+  }
+}
@@ -0,0 +1,154 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import frc.robot.LimelightHelpers.SnapshotClient;
+
+/**
+ * Runs {@link SnapshotClient} against a local stand-in for the Limelight's snapshot endpoint.
+ */
+class LimelightSnapshotClientTest {
+
+  private static final long kWaitSeconds = 5;
+
+  private HttpServer server;
+  /** Snapshot names in the order the server received them. */
+  private final List<String> received = new CopyOnWriteArrayList<>();
+  /** Arrives when the server receives a request for the snapshot named "block". */
+  private final CountDownLatch blockArrived = new CountDownLatch(1);
+  /** Holds a "block" request until released. */
+  private final CountDownLatch releaseBlock = new CountDownLatch(1);
+
+  @BeforeEach
+  void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/capturesnapshot", exchange -> {
+      String name = exchange.getRequestHeaders().getFirst("snapname");
+      received.add(name);
+      try {
+        if ("block".equals(name)) {
+          blockArrived.countDown();
+          releaseBlock.await(kWaitSeconds, TimeUnit.SECONDS);
+        } else if ("slow".equals(name)) {
+          Thread.sleep(2000);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      int status = "bad".equals(name) ? 500 : 200;
+      exchange.sendResponseHeaders(status, -1);
+      exchange.close();
+    });
+    server.start();
+  }
+
+  @AfterEach
+  void stopServer() {
+    releaseBlock.countDown();
+    server.stop(0);
+  }
+
+  private SnapshotClient client(int capacity, int readTimeoutMs) {
+    int port = server.getAddress().getPort();
+    return new SnapshotClient(capacity, 250, readTimeoutMs, tableName -> {
+      try {
+        return new URL("http://127.0.0.1:" + port + "/capturesnapshot");
+      } catch (MalformedURLException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+  }
+
+  private static boolean result(CompletableFuture<Boolean> future) throws Exception {
+    return future.get(kWaitSeconds, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void completesTrueOnSuccessAndFalseOnBadResponse() throws Exception {
+    SnapshotClient client = client(4, 1000);
+
+    assertTrue(result(client.submit("limelight", "good")));
+    assertFalse(result(client.submit("limelight", "bad")));
+
+    assertEquals(2, client.getQueued());
+    assertEquals(1, client.getCompleted());
+    assertEquals(1, client.getFailed());
+    assertEquals(List.of("good", "bad"), received);
+  }
+
+  @Test
+  void readTimeoutFailsTheRequest() throws Exception {
+    SnapshotClient client = client(4, 200);
+
+    long start = System.nanoTime();
+    assertFalse(result(client.submit("limelight", "slow")));
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertTrue(elapsedMs < 1500, "took " + elapsedMs + " ms, longer than the read timeout allows");
+    assertEquals(1, client.getFailed());
+    assertEquals(0, client.getCompleted());
+  }
+
+  @Test
+  void unreachableLimelightFailsTheRequest() throws Exception {
+    SnapshotClient client = client(4, 250);
+    server.stop(0);
+
+    assertFalse(result(client.submit("limelight", "good")));
+    assertEquals(1, client.getFailed());
+  }
+
+  @Test
+  void fullQueueDropsTheOldestAndCoalescesDuplicates() throws Exception {
+    SnapshotClient client = client(2, 1000);
+
+    // Hold the worker on one request so the rest wait in the queue
+    CompletableFuture<Boolean> inFlight = client.submit("limelight", "block");
+    assertTrue(blockArrived.await(kWaitSeconds, TimeUnit.SECONDS));
+
+    CompletableFuture<Boolean> first = client.submit("limelight", "first");
+    CompletableFuture<Boolean> second = client.submit("limelight", "second");
+    CompletableFuture<Boolean> third = client.submit("limelight", "third");
+
+    // The queue only holds two, so the oldest waiting request is dropped
+    assertTrue(first.isDone());
+    assertFalse(result(first));
+    assertEquals(1, client.getDropped());
+
+    // Asking for a snapshot that is still waiting gets the same future
+    assertSame(second, client.submit("limelight", "second"));
+    assertEquals(1, client.getCoalesced());
+
+    releaseBlock.countDown();
+    assertTrue(result(inFlight));
+    assertTrue(result(second));
+    assertTrue(result(third));
+
+    assertEquals(4, client.getQueued());
+    assertEquals(3, client.getCompleted());
+    assertEquals(0, client.getFailed());
+    assertEquals(List.of("block", "second", "third"), received);
+  }
+}
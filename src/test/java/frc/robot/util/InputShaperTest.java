@@ -0,0 +1,119 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class InputShaperTest {
+
+  private static final double kDelta = 1e-9;
+  private static final double kDeadband = 0.05;
+  private static final double kLoop = 0.02;
+
+  /**
+   * @return The shaped distance from center for a stick at {@code magnitude}.
+   */
+  private static double shaped(double magnitude, double expo) {
+    return InputShaper.shape(magnitude, kDeadband, expo) * magnitude;
+  }
+
+  @Test
+  void deadbandEdgeStartsFromZero() {
+    assertEquals(0, shaped(0, 1), kDelta);
+    assertEquals(0, shaped(kDeadband / 2, 0), kDelta);
+    assertEquals(0, shaped(kDeadband, 0), kDelta);
+
+    double justOut = shaped(kDeadband + 1e-6, 0);
+    assertTrue(justOut > 0 && justOut < 1e-5, "jumped to " + justOut + " at the deadband edge");
+  }
+
+  @Test
+  void linearExpoEndPoints() {
+    assertEquals(0, shaped(kDeadband, 0), kDelta);
+    assertEquals(0.5, shaped(kDeadband + (1 - kDeadband) / 2, 0), kDelta);
+    assertEquals(1, shaped(1, 0), kDelta);
+  }
+
+  @Test
+  void cubicExpoEndPoints() {
+    assertEquals(0, shaped(kDeadband, 1), kDelta);
+    assertEquals(0.125, shaped(kDeadband + (1 - kDeadband) / 2, 1), kDelta);
+    assertEquals(1, shaped(1, 1), kDelta);
+  }
+
+  @Test
+  void clampsPastFullStick() {
+    // A square gamepad gate reads up to sqrt(2) on the diagonals
+    assertEquals(1, shaped(Math.sqrt(2), 0), kDelta);
+    assertEquals(1, shaped(1.2, 0.5), kDelta);
+    assertEquals(1, shaped(1.2, 1), kDelta);
+  }
+
+  @Test
+  void keepsDirectionOnDiagonals() {
+    InputShaper shaper = new InputShaper(new InputShaper.Config(kDeadband, 1, 6, 0.5));
+
+    shaper.update(0.5, 0.5, false, 0);
+    assertEquals(shaper.getX(), shaper.getY(), kDelta);
+    assertEquals(shaped(Math.hypot(0.5, 0.5), 1), Math.hypot(shaper.getX(), shaper.getY()), kDelta);
+
+    shaper.update(-0.3, 0.6, false, 0);
+    assertEquals(-0.5, shaper.getX() / shaper.getY(), kDelta);
+    assertTrue(shaper.getX() < 0 && shaper.getY() > 0);
+
+    shaper.update(1, -1, false, 0);
+    assertEquals(Math.sqrt(0.5), shaper.getX(), kDelta);
+    assertEquals(-Math.sqrt(0.5), shaper.getY(), kDelta);
+  }
+
+  @Test
+  void precisionScalesTheOutput() {
+    InputShaper shaper = new InputShaper(new InputShaper.Config(0, 0, 6, 0.5));
+
+    shaper.update(0.8, 0, true, 0);
+    assertEquals(0.4, shaper.getX(), kDelta);
+  }
+
+  @Test
+  void slewLimitsEachLoop() {
+    InputShaper shaper = new InputShaper(new InputShaper.Config(0, 0, 6, 0.5));
+    shaper.update(0, 0, false, 0);
+
+    // 6 full stick per second is 0.12 per 20 ms loop, so a full step takes 9 loops
+    for (int loop = 1; loop <= 8; loop++) {
+      shaper.update(1, 0, false, kLoop);
+      assertEquals(0.12 * loop, shaper.getX(), kDelta);
+    }
+    shaper.update(1, 0, false, kLoop);
+    assertEquals(1, shaper.getX(), kDelta);
+
+    // Steps smaller than the limit are taken in one loop, in either direction
+    shaper.update(0.95, 0, false, kLoop);
+    assertEquals(0.95, shaper.getX(), kDelta);
+    shaper.update(-1, 0, false, kLoop);
+    assertEquals(0.83, shaper.getX(), kDelta);
+  }
+
+  @Test
+  void slewLimitsTheVectorAndKeepsItsDirection() {
+    InputShaper shaper = new InputShaper(new InputShaper.Config(0, 0, 6, 0.5));
+    shaper.update(0, 0, false, 0);
+
+    shaper.update(0.6, 0.6, false, kLoop);
+    assertEquals(0.12, Math.hypot(shaper.getX(), shaper.getY()), kDelta);
+    assertEquals(shaper.getX(), shaper.getY(), kDelta);
+  }
+
+  @Test
+  void noRampWithoutAUsableTimeStep() {
+    InputShaper shaper = new InputShaper(new InputShaper.Config(0, 0, 6, 0.5));
+    shaper.update(0, 0, false, 0);
+
+    // First loop, disabled or a stalled loop
+    shaper.update(1, 0, false, 0);
+    assertEquals(1, shaper.getX(), kDelta);
+    shaper.update(-1, 0, false, 2);
+    assertEquals(-1, shaper.getX(), kDelta);
+  }
+}